@@ -0,0 +1,53 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.platform_messages.InstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.PlatformMessages;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the method call arguments sent by Dart for {@code init}, {@code subscribe} and
+ * {@code bind}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentDecodingBenchmark {
+
+    private static final String INIT = "{\"appKey\":\"key\",\"instanceId\":0,\"isLoggingEnabled\":false,"
+        + "\"options\":{\"cluster\":\"eu\",\"port\":443,\"encrypted\":true,\"activityTimeout\":30000,"
+        + "\"auth\":{\"endpoint\":\"https://example.com/auth\",\"headers\":{\"Authorization\":\"Bearer token\"}},"
+        + "\"batching\":{\"maxBatchSize\":50,\"flushInterval\":16},"
+        + "\"buffer\":{\"capacity\":256,\"overflowPolicy\":\"conflate\"}}}";
+    private static final String SUBSCRIBE = "{\"instanceId\":0,\"channelName\":\"private-orders\"}";
+    private static final String BIND = "{\"instanceId\":0,\"channelName\":\"private-orders\",\"eventName\":\"update\","
+        + "\"filter\":{\"path\":\"order.status\",\"in\":[\"open\",\"filled\"]},\"conflate\":true}";
+
+    @Benchmark
+    public InstanceMessage init() {
+        return PlatformMessages.decode("init", INIT);
+    }
+
+    @Benchmark
+    public InstanceMessage subscribe() {
+        return PlatformMessages.decode("subscribe", SUBSCRIBE);
+    }
+
+    @Benchmark
+    public InstanceMessage bind() {
+        return PlatformMessages.decode("bind", BIND);
+    }
+}
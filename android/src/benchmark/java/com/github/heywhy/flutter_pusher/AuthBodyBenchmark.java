@@ -0,0 +1,54 @@
+package com.github.heywhy.flutter_pusher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of the authorization request bodies, for one channel and for a batch of channels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthBodyBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int channels;
+
+    private final JsonEncodedConnectionFactory factory = new JsonEncodedConnectionFactory();
+    private final List<String> channelNames = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        factory.setChannelName("private-orders-0");
+        factory.setSocketId("123.456");
+        for (int i = 0; i < channels; i++) {
+            channelNames.add("private-orders-" + i);
+        }
+    }
+
+    @Benchmark
+    public String singleBody() {
+        return factory.getBody();
+    }
+
+    @Benchmark
+    public String batchBody() {
+        return factory.getBody(channelNames, "123.456");
+    }
+}
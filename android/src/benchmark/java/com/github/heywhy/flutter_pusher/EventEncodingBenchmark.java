@@ -0,0 +1,106 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.listeners.EventChannelListener;
+import com.pusher.client.channel.PusherEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an event from {@link EventChannelListener#onEvent(PusherEvent)} to the message sink:
+ * routing, buffering, encoding on the dispatcher and delivery, with both schedulers run inline.
+ *
+ * {@code burst} events arrive before the dispatcher runs, as they do when events come in
+ * faster than it drains them; with batching they are delivered as one list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventEncodingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int payloadSize;
+
+    @Param({"1", "64"})
+    public int burst;
+
+    @Param({"false", "true"})
+    public boolean isBatching;
+
+    private ManualTaskScheduler scheduler;
+    private EventChannelListener listener;
+    private CountingSink sink;
+    private PusherEvent event;
+
+    @Setup
+    public void setUp() {
+        scheduler = new ManualTaskScheduler();
+        sink = new CountingSink();
+        final InstanceStats stats = new InstanceStats();
+        final EventDispatcher dispatcher = new EventDispatcher(
+            "0",
+            sink,
+            new EventBuffer(4096, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+            stats,
+            scheduler,
+            scheduler,
+            isBatching,
+            64,
+            0,
+            0,
+            null
+        );
+
+        final EventRouter router = new EventRouter();
+        router.bind("prices", "tick", EventFilter.ANY, false, null, null, null);
+        listener = new EventChannelListener("0", dispatcher, router, null, new PusherLogger("0"));
+        event = createEvent("prices", "tick", Payloads.json(payloadSize));
+    }
+
+    @Benchmark
+    public int onEvent() {
+        for (int i = 0; i < burst; i++) {
+            listener.onEvent(event);
+        }
+        scheduler.runDue();
+        return sink.count;
+    }
+
+    static PusherEvent createEvent(String channel, String event, String data) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("channel", channel);
+        properties.put("event", event);
+        properties.put("data", data);
+        return new PusherEvent(properties);
+    }
+
+    static class CountingSink implements MessageSink {
+        int count;
+
+        @Override
+        public boolean isListening() {
+            return true;
+        }
+
+        @Override
+        public void send(Object message) {
+            count++;
+        }
+    }
+}
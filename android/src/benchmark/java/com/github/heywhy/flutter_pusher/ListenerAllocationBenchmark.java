@@ -0,0 +1,125 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.listeners.EventChannelListener;
+import com.google.gson.JsonObject;
+import com.pusher.client.channel.PusherEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocations per event of the listener path against the envelope it replaced, run with
+ * {@code -prof gc} and compare {@code gc.alloc.rate.norm}, the bytes allocated per event.
+ *
+ * The {@code previous*} methods redo what the listener used to do for each event: a task for
+ * the main looper, two JSON objects and the envelope string, plus a map and a
+ * {@link PusherEvent} to wrap synthetic events. Gson stands in for org.json, which is only a
+ * stub off Android, and the per-event {@code Handler} is left out; both understate the cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerAllocationBenchmark {
+
+    @Param({"100", "10000"})
+    public int payloadSize;
+
+    private ManualTaskScheduler scheduler;
+    private EventChannelListener listener;
+    private EventEncodingBenchmark.CountingSink sink;
+    private PusherEvent event;
+    private String data;
+
+    @Setup
+    public void setUp() {
+        scheduler = new ManualTaskScheduler();
+        sink = new EventEncodingBenchmark.CountingSink();
+        final InstanceStats stats = new InstanceStats();
+        final EventDispatcher dispatcher = new EventDispatcher(
+            "0",
+            sink,
+            new EventBuffer(4096, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+            stats,
+            scheduler,
+            scheduler
+        );
+
+        final EventRouter router = new EventRouter();
+        router.bind("prices", "tick", EventFilter.ANY, false, null, null, null);
+        router.bind("prices", "pusher:subscription_succeeded", EventFilter.ANY, false, null, null, null);
+        final ReconnectManager reconnectManager = new ReconnectManager(
+            null, Collections.<String>emptySet(), scheduler, null, false, 0, 0, 0);
+
+        listener = new EventChannelListener("0", dispatcher, router, reconnectManager, new PusherLogger("0"));
+        data = Payloads.json(payloadSize);
+        event = EventEncodingBenchmark.createEvent("prices", "tick", data);
+    }
+
+    @Benchmark
+    public int event() {
+        listener.onEvent(event);
+        scheduler.runDue();
+        return sink.count;
+    }
+
+    @Benchmark
+    public int syntheticEvent() {
+        listener.onSubscriptionSucceeded("prices");
+        scheduler.runDue();
+        return sink.count;
+    }
+
+    @Benchmark
+    public String previousEvent() {
+        return new EnvelopeTask(event).run();
+    }
+
+    @Benchmark
+    public String previousSyntheticEvent() {
+        final Map<String, Object> eventData = new HashMap<>();
+        eventData.put("channel", "prices");
+        eventData.put("event", "pusher:subscription_succeeded");
+        eventData.put("data", "");
+        return new EnvelopeTask(new PusherEvent(eventData)).run();
+    }
+
+    /**
+     * The task the listener posted per event, building the envelope on the main looper.
+     */
+    private static final class EnvelopeTask {
+        private final PusherEvent pusherEvent;
+
+        EnvelopeTask(PusherEvent pusherEvent) {
+            this.pusherEvent = pusherEvent;
+        }
+
+        String run() {
+            final JsonObject eventStreamMessageJson = new JsonObject();
+            final JsonObject eventJson = new JsonObject();
+            eventJson.addProperty("channel", pusherEvent.getChannelName());
+            eventJson.addProperty("event", pusherEvent.getEventName());
+            eventJson.addProperty("data", pusherEvent.getData());
+            eventStreamMessageJson.addProperty("isEvent", true);
+            eventStreamMessageJson.add("event", eventJson);
+            eventStreamMessageJson.addProperty("instanceId", "0");
+            return eventStreamMessageJson.toString();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.heywhy.flutter_pusher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event data sent as a string against data sent as UTF-8 bytes, from 100 B to 1 MB.
+ *
+ * {@code *Dispatcher} is the work on the dispatcher thread, {@link EventDispatcher#encodeData(String)}
+ * with and without a binary threshold. {@code *MainThread} is what the standard message codec
+ * then does on the main thread: a string is encoded to UTF-8 there, bytes are only copied.
+ * The codec itself is not on the JVM classpath, its write is reproduced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadSizeBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int payloadSize;
+
+    private final ByteArrayOutputStream codecStream = new ByteArrayOutputStream();
+    private EventDispatcher stringDispatcher;
+    private EventDispatcher binaryDispatcher;
+    private String data;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        stringDispatcher = createDispatcher(0);
+        binaryDispatcher = createDispatcher(1);
+        data = Payloads.json(payloadSize);
+        bytes = data.getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public Object stringDispatcher() {
+        return stringDispatcher.encodeData(data);
+    }
+
+    @Benchmark
+    public Object binaryDispatcher() {
+        return binaryDispatcher.encodeData(data);
+    }
+
+    @Benchmark
+    public int stringMainThread() {
+        codecStream.reset();
+        final byte[] encoded = data.getBytes(UTF_8);
+        codecStream.write(encoded, 0, encoded.length);
+        return codecStream.size();
+    }
+
+    @Benchmark
+    public int binaryMainThread() {
+        codecStream.reset();
+        codecStream.write(bytes, 0, bytes.length);
+        return codecStream.size();
+    }
+
+    private static EventDispatcher createDispatcher(int binaryThreshold) {
+        final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+        final InstanceStats stats = new InstanceStats();
+        return new EventDispatcher(
+            "0",
+            new EventEncodingBenchmark.CountingSink(),
+            new EventBuffer(16, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+            stats,
+            scheduler,
+            scheduler,
+            false,
+            1,
+            0,
+            binaryThreshold,
+            null
+        );
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.heywhy.flutter_pusher;
+
+/**
+ * JSON event data of a given size for the benchmarks.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * A JSON object of about {@code size} characters, a list of price entries.
+     */
+    static String json(int size) {
+        final StringBuilder builder = new StringBuilder(size + 64);
+        builder.append("{\"symbol\":\"EURUSD\",\"prices\":[");
+        for (int i = 0; builder.length() < size - 2; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i).append(",\"bid\":1.0").append(i % 1000)
+                .append(",\"ask\":1.1").append(i % 1000).append('}');
+        }
+        return builder.append("]}").toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.pusher.client.channel.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a presence channel's members: taking the user set of the Pusher client
+ * into the roster, and a page of members as sent to Dart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresenceRosterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int members;
+
+    private final Set<User> users = new HashSet<>();
+    private final PresenceRoster roster = new PresenceRoster();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < members; i++) {
+            users.add(new User("user-" + i, "{\"name\":\"User " + i + "\",\"avatar\":\"https://example.com/" + i + ".png\"}"));
+        }
+        roster.setMembers("presence-room", PresenceRoster.toUsers(users));
+    }
+
+    @Benchmark
+    public boolean setMembers() {
+        return roster.setMembers("presence-room", PresenceRoster.toUsers(users));
+    }
+
+    @Benchmark
+    public Map<String, Object> getMembersPage() {
+        return roster.getMembers("presence-room", 0, 100);
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.heywhy.flutter_pusher;
+
+/**
+ * Opens the connection only while it is of use: once connecting was requested, at least one
+ * channel is subscribed and the app is in the foreground.
+ *
+ * The socket is opened on the first subscription and closed {@code idleTimeout} milliseconds
+ * after the last channel is unsubscribed, or {@code backgroundTimeout} milliseconds after the
+ * app went to the background. The Pusher client keeps its channels while disconnected and
+ * subscribes them again once connected, so resuming needs nothing from Dart.
+ *
+ * Only called on the main thread.
+ */
+public class AutoConnectManager {
+
+    /**
+     * Opens and closes the connection of the instance.
+     */
+    public interface Connector {
+        void connect();
+
+        void disconnect();
+    }
+
+    private final TaskScheduler scheduler;
+    private final Connector connector;
+    private final PusherLogger log;
+    private final long idleTimeout;
+    private final long backgroundTimeout;
+    private final boolean isDisconnectingInBackground;
+
+    private boolean isConnectRequested = false;
+    private boolean isConnected = false;
+    private boolean isInBackground = false;
+    private boolean isDisconnectScheduled = false;
+    private int channelCount = 0;
+
+    private final Runnable disconnectRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isDisconnectScheduled = false;
+            if (isConnected && !shouldConnect()) {
+                isConnected = false;
+                log.info("auto disconnect ({})", isInBackground ? "background" : "idle");
+                connector.disconnect();
+            }
+        }
+    };
+
+    public AutoConnectManager(
+        TaskScheduler scheduler,
+        Connector connector,
+        PusherLogger log,
+        long idleTimeout,
+        long backgroundTimeout,
+        boolean isDisconnectingInBackground
+    ) {
+        this.scheduler = scheduler;
+        this.connector = connector;
+        this.log = log;
+        this.idleTimeout = Math.max(0, idleTimeout);
+        this.backgroundTimeout = Math.max(0, backgroundTimeout);
+        this.isDisconnectingInBackground = isDisconnectingInBackground;
+    }
+
+    void onConnectRequested() {
+        isConnectRequested = true;
+        update();
+    }
+
+    /**
+     * The instance disconnects itself, the connection stays closed until requested again.
+     */
+    void onDisconnectRequested() {
+        isConnectRequested = false;
+        isConnected = false;
+        cancelDisconnect();
+    }
+
+    void onChannelsChanged(int channelCount) {
+        this.channelCount = channelCount;
+        update();
+    }
+
+    /**
+     * @param state name of the Flutter {@code AppLifecycleState}
+     */
+    void onLifecycleStateChanged(String state) {
+        switch (state) {
+            case "resumed":
+                isInBackground = false;
+                break;
+            case "paused":
+            case "detached":
+                isInBackground = true;
+                break;
+            default:
+                // inactive is too short-lived to act on
+                return;
+        }
+        update();
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+        isDisconnectScheduled = false;
+    }
+
+    private boolean shouldConnect() {
+        return isConnectRequested
+            && channelCount > 0
+            && !(isInBackground && isDisconnectingInBackground);
+    }
+
+    private void update() {
+        if (shouldConnect()) {
+            cancelDisconnect();
+            if (!isConnected) {
+                isConnected = true;
+                log.info("auto connect ({} channels)", channelCount);
+                connector.connect();
+            }
+        } else if (isConnected && !isDisconnectScheduled) {
+            isDisconnectScheduled = true;
+            scheduler.postDelayed(disconnectRunnable, isInBackground ? backgroundTimeout : idleTimeout);
+        }
+    }
+
+    private void cancelDisconnect() {
+        if (isDisconnectScheduled) {
+            isDisconnectScheduled = false;
+            scheduler.cancel(disconnectRunnable);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.pusher.client.AuthorizationFailureException;
+import com.pusher.client.Authorizer;
+import com.pusher.client.util.ConnectionFactory;
+
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorizer of private and presence channels that caches signatures per socket id.
+ *
+ * The Pusher client authorizes channels one at a time on its event thread, so after a
+ * reconnect every channel used to cost a request. Here the first authorization for a new
+ * socket id also requests all other registered channels in the same, batched, request, and
+ * the following ones are answered from the cache until the socket id changes.
+ *
+ * Batched requests post a JSON body with a list of {@code channel_name}s and expect a JSON
+ * object with the auth response of each channel under its name. Backends that do not support
+ * it keep one request per channel, still cached per socket id.
+ *
+ * Single and batched requests go through the same request code, which unlike
+ * {@code HttpAuthorizer} times out. Authorizations run on the Pusher event thread, the cache
+ * is only locked around its reads and writes, so the main thread is never held up by a request.
+ */
+public class BatchAuthorizer implements Authorizer {
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 10000;
+
+    private final String endpoint;
+    private final Map<String, String> headers;
+    private final ConnectionFactory connection;
+    private final JsonEncodedConnectionFactory batchConnection;
+    private final InstanceStats stats;
+    private final Set<String> channelNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // guards the signatures and their socket id, never held during a request
+    private final Object lock = new Object();
+    private final Map<String, String> signatures = new HashMap<>();
+    private String socketId;
+
+    /**
+     * @param connection      encodes the request of a single channel
+     * @param batchConnection encodes batched requests, {@code null} to authorize channels one by one
+     */
+    public BatchAuthorizer(
+        String endpoint,
+        Map<String, String> headers,
+        ConnectionFactory connection,
+        JsonEncodedConnectionFactory batchConnection,
+        InstanceStats stats
+    ) {
+        this.endpoint = endpoint;
+        this.headers = headers;
+        this.connection = connection;
+        this.batchConnection = batchConnection;
+        this.stats = stats;
+    }
+
+    /**
+     * Registers a channel to authorize along with the next batch.
+     */
+    void register(String channelName) {
+        channelNames.add(channelName);
+    }
+
+    void unregister(String channelName) {
+        channelNames.remove(channelName);
+        synchronized (lock) {
+            signatures.remove(channelName);
+        }
+    }
+
+    @Override
+    public String authorize(String channelName, String socketId) throws AuthorizationFailureException {
+        final List<String> batch = new ArrayList<>();
+        synchronized (lock) {
+            if (!socketId.equals(this.socketId)) {
+                signatures.clear();
+                this.socketId = socketId;
+            }
+
+            final String signature = signatures.get(channelName);
+            if (signature != null) {
+                return signature;
+            }
+
+            batch.add(channelName);
+            if (batchConnection != null) {
+                for (String name : channelNames) {
+                    if (!name.equals(channelName) && !signatures.containsKey(name)) {
+                        batch.add(name);
+                    }
+                }
+            }
+        }
+
+        final long start = System.nanoTime();
+        final Map<String, String> result = batch.size() == 1
+            ? Collections.singletonMap(channelName, authorizeChannel(channelName, socketId))
+            : authorizeBatch(batch, socketId);
+        stats.onAuthorized(System.nanoTime() - start);
+
+        synchronized (lock) {
+            if (socketId.equals(this.socketId)) {
+                for (Map.Entry<String, String> entry : result.entrySet()) {
+                    // channels unregistered during the request are not cached
+                    if (entry.getKey().equals(channelName) || channelNames.contains(entry.getKey())) {
+                        signatures.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        final String signature = result.get(channelName);
+        if (signature == null) {
+            throw new AuthorizationFailureException("No authorization for " + channelName + " in batch response");
+        }
+        return signature;
+    }
+
+    private String authorizeChannel(String channelName, String socketId) {
+        final String body;
+        synchronized (connection) {
+            connection.setChannelName(channelName);
+            connection.setSocketId(socketId);
+            body = connection.getBody();
+        }
+        return post(connection, body);
+    }
+
+    private Map<String, String> authorizeBatch(List<String> batch, String socketId) {
+        final String response = post(batchConnection, batchConnection.getBody(batch, socketId));
+        final Map<String, String> result = new HashMap<>();
+
+        try {
+            final JsonObject responses = new JsonParser().parse(response).getAsJsonObject();
+            for (String name : batch) {
+                final JsonElement channelResponse = responses.get(name);
+                if (channelResponse != null && channelResponse.isJsonObject()) {
+                    result.put(name, channelResponse.toString());
+                }
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new AuthorizationFailureException("Invalid batch authorization response", e);
+        }
+        return result;
+    }
+
+    private String post(ConnectionFactory factory, String body) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(endpoint).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setDoOutput(true);
+            connection.setDoInput(true);
+            connection.setInstanceFollowRedirects(false);
+            connection.setUseCaches(false);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", factory.getContentType());
+            connection.setRequestProperty("charset", factory.getCharset());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            final byte[] bytes = body.getBytes(factory.getCharset());
+            connection.setRequestProperty("Content-Length", Integer.toString(bytes.length));
+
+            final OutputStream output = connection.getOutputStream();
+            output.write(bytes);
+            output.flush();
+            output.close();
+
+            final int status = connection.getResponseCode();
+            final InputStream input = status == 200 || status == 201
+                ? connection.getInputStream()
+                : connection.getErrorStream();
+            if (input == null) {
+                throw new AuthorizationFailureException("Authorization failed with status " + status);
+            }
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(input, factory.getCharset()));
+            final StringBuilder response = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                response.append(line);
+            }
+            reader.close();
+
+            if (status != 200 && status != 201) {
+                throw new AuthorizationFailureException(response.toString());
+            }
+            return response.toString();
+        } catch (IOException e) {
+            throw new AuthorizationFailureException(e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.pusher.client.channel.PrivateChannel;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound queue of the client events triggered from Dart.
+ *
+ * Pusher disconnects clients sending more than its client event rate limit, so events are
+ * sent at most {@code maxRate} per second and queue up in between. An event triggered with
+ * {@code latestWins} replaces the queued event of the same channel and name, which suits
+ * cursor or typing updates where only the last value matters.
+ *
+ * The publisher belongs to the {@link SharedConnection}, so the limit holds for the socket
+ * whatever the number of instances sharing it.
+ *
+ * Events are paced on the monotonic clock. Triggers and sends both happen on the main thread.
+ */
+public class ClientEventPublisher {
+
+    private static class ClientEvent {
+        final PrivateChannel channel;
+        final String eventName;
+        final String key;
+        String data;
+
+        ClientEvent(PrivateChannel channel, String eventName, String data) {
+            this.channel = channel;
+            this.eventName = eventName;
+            this.key = channel.getName() + ":" + eventName;
+            this.data = data;
+        }
+    }
+
+    private final TaskScheduler scheduler;
+    private final PusherLogger log;
+    private final long interval;
+    private final long intervalNanos;
+    private final int maxQueued;
+    private final ArrayDeque<ClientEvent> queue = new ArrayDeque<>();
+    private final Map<String, ClientEvent> latestByKey = new HashMap<>();
+    private long lastSentAtNanos;
+    private boolean isScheduled = false;
+
+    private final Runnable publishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isScheduled = false;
+            publish();
+        }
+    };
+
+    public ClientEventPublisher(
+        TaskScheduler scheduler,
+        PusherLogger log,
+        int maxRate,
+        int maxQueued
+    ) {
+        this.scheduler = scheduler;
+        this.log = log;
+        this.interval = 1000L / Math.max(1, maxRate);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.lastSentAtNanos = System.nanoTime() - intervalNanos;
+    }
+
+    /**
+     * Queues a client event, {@code data} is its JSON encoded payload. The channel must be
+     * subscribed, events of channels unsubscribed meanwhile are dropped when their turn comes.
+     *
+     * @return {@code false} when the queue is full and the event was rejected
+     */
+    public boolean trigger(PrivateChannel channel, String eventName, String data, boolean latestWins) {
+        if (latestWins) {
+            final ClientEvent queued = latestByKey.get(channel.getName() + ":" + eventName);
+            if (queued != null) {
+                queued.data = data;
+                return true;
+            }
+        }
+
+        if (queue.size() >= maxQueued) {
+            return false;
+        }
+
+        final ClientEvent event = new ClientEvent(channel, eventName, data);
+        queue.add(event);
+        if (latestWins) {
+            latestByKey.put(event.key, event);
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * Drops the events that were not sent yet.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        queue.clear();
+        latestByKey.clear();
+    }
+
+    private void publish() {
+        if (isScheduled || queue.isEmpty()) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long wait = lastSentAtNanos + intervalNanos - now;
+        if (wait > 0) {
+            isScheduled = true;
+            // rounded up, so that the event is not early
+            scheduler.postDelayed(publishRunnable, (wait + 999999) / 1000000);
+            return;
+        }
+
+        final ClientEvent event = queue.poll();
+        if (latestByKey.get(event.key) == event) {
+            latestByKey.remove(event.key);
+        }
+        lastSentAtNanos = now;
+        send(event);
+
+        if (!queue.isEmpty()) {
+            isScheduled = true;
+            scheduler.postDelayed(publishRunnable, interval);
+        }
+    }
+
+    private void send(ClientEvent event) {
+        if (!event.channel.isSubscribed()) {
+            log.debug("dropped client event {}, {} is no longer subscribed",
+                event.eventName, event.channel.getName());
+            return;
+        }
+
+        try {
+            event.channel.trigger(event.eventName, event.data);
+            log.debug("trigger {} on {}", event.eventName, event.channel.getName());
+        } catch (Exception e) {
+            log.error("trigger error", e);
+        }
+    }
+}
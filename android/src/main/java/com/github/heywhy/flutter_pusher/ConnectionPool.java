@@ -0,0 +1,94 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.platform_messages.InitInstanceMessage;
+import com.google.gson.Gson;
+import com.pusher.client.Pusher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Connections of the instances initialized with {@code shareConnection}, one per app key and
+ * connection options, so instances pointing at the same app multiplex their channels over a
+ * single socket. A connection is disconnected once its last instance releases it.
+ *
+ * Only called on the main thread.
+ */
+public class ConnectionPool {
+
+    private static final Gson gson = new Gson();
+
+    private final Map<String, SharedConnection> connections = new HashMap<>();
+
+    /**
+     * Identifies the options that change the connection itself, event delivery options do not.
+     */
+    static String getKey(InitInstanceMessage message) {
+        final InitInstanceMessage.InitOptions options = message.getOptions();
+        return gson.toJson(Arrays.asList(
+            message.getAppKey(),
+            options.getCluster(),
+            options.getHost(),
+            options.getPort(),
+            options.getEncrypted(),
+            options.getActivityTimeout(),
+            options.getAuth(),
+            options.getReconnect() != null
+        ));
+    }
+
+    /**
+     * Identifies whose events a connection receives, the app key, host and authorization
+     * (endpoint and headers, which usually carry the user's credentials).
+     */
+    static String getIdentity(InitInstanceMessage message) {
+        final InitInstanceMessage.InitOptions options = message.getOptions();
+        final InitInstanceMessage.AuthOption auth = options.getAuth();
+        return gson.toJson(Arrays.asList(
+            message.getAppKey(),
+            options.getCluster(),
+            options.getHost(),
+            options.getPort(),
+            auth != null ? auth.getEndpoint() : null,
+            auth != null ? new TreeMap<>(auth.getHeaders()) : null
+        ));
+    }
+
+    /**
+     * The pooled connection of {@code key}, retained for the caller, or {@code null}.
+     */
+    SharedConnection acquire(String key) {
+        final SharedConnection connection = key != null ? connections.get(key) : null;
+        if (connection != null) {
+            connection.retain();
+        }
+        return connection;
+    }
+
+    /**
+     * Wraps a new client, pooled under {@code key} unless it is {@code null}. The reconnection
+     * and client event options of the connection are those of {@code options}.
+     */
+    SharedConnection add(
+        String key,
+        Pusher pusher,
+        BatchAuthorizer authorizer,
+        InitInstanceMessage.InitOptions options,
+        PusherLogger log
+    ) {
+        final SharedConnection connection = new SharedConnection(key, pusher, authorizer, options, log);
+        connection.retain();
+        if (key != null) {
+            connections.put(key, connection);
+        }
+        return connection;
+    }
+
+    void release(SharedConnection connection, String instanceId) {
+        if (connection.release(instanceId) && connection.getKey() != null) {
+            connections.remove(connection.getKey());
+        }
+    }
+}
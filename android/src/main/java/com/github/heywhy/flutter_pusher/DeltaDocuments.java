@@ -0,0 +1,169 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Current document of the channels whose events are bound in delta mode.
+ *
+ * A snapshot event replaces the document of its channel, a patch event (JSON Patch or JSON
+ * Merge Patch) is applied to it in place, so a large document is parsed once instead of on
+ * every change. Dart then receives either the event data as sent or the document, projected
+ * on a dotted {@code path} so that only the part it renders is encoded.
+ *
+ * A patch that cannot be applied discards the document, patches are skipped until the next
+ * snapshot. Patches must therefore not be conflated or dropped by the event buffer.
+ *
+ * Events are applied on the dispatcher thread, documents are read on the main thread.
+ */
+public class DeltaDocuments {
+
+    public enum Mode {
+        SNAPSHOT,
+        JSON_PATCH,
+        MERGE_PATCH;
+
+        static Mode fromString(String mode) {
+            switch (mode) {
+                case "snapshot":
+                    return SNAPSHOT;
+                case "jsonPatch":
+                    return JSON_PATCH;
+                case "mergePatch":
+                    return MERGE_PATCH;
+                default:
+                    throw new IllegalArgumentException("Unknown delta mode " + mode);
+            }
+        }
+    }
+
+    /**
+     * Delta mode of a binding.
+     */
+    public static class Binding {
+        private final DeltaDocuments documents;
+        private final Mode mode;
+        private final boolean isDeliveringDocument;
+        private final String[] path;
+
+        Binding(DeltaDocuments documents, Mode mode, boolean isDeliveringDocument, String[] path) {
+            this.documents = documents;
+            this.mode = mode;
+            this.isDeliveringDocument = isDeliveringDocument;
+            this.path = path;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * Applies the event to the document of the channel.
+         *
+         * @param data the data of the event parsed by {@link EventFilter#parse(String)}
+         * @return the data to deliver to Dart, either {@code data} or the projected document, or
+         * {@code null} when there is nothing to deliver
+         */
+        public JsonElement apply(String channelName, JsonElement data) {
+            final JsonElement document = documents.apply(channelName, mode, data);
+            if (!isDeliveringDocument) {
+                return document != null ? data : null;
+            }
+
+            return document != null ? project(document, path) : null;
+        }
+    }
+
+    private final PusherLogger log;
+    private final Map<String, JsonElement> documents = new HashMap<>();
+
+    public DeltaDocuments(PusherLogger log) {
+        this.log = log;
+    }
+
+    /**
+     * Builds the binding from its JSON form, {@code {"mode": "jsonPatch", "deliver": "document", "path": "a.b"}}.
+     */
+    Binding createBinding(JsonObject delta) {
+        final String path = delta.has("path") ? delta.get("path").getAsString() : null;
+        return new Binding(
+            this,
+            Mode.fromString(delta.get("mode").getAsString()),
+            delta.has("deliver") && "document".equals(delta.get("deliver").getAsString()),
+            path != null && !path.isEmpty() ? path.split("\\.") : null
+        );
+    }
+
+    /**
+     * The document of the channel projected on the dotted {@code path}, as JSON.
+     */
+    synchronized String getDocument(String channelName, String path) {
+        final JsonElement document = documents.get(channelName);
+        final JsonElement projection = document != null
+            ? project(document, path != null && !path.isEmpty() ? path.split("\\.") : null)
+            : null;
+        return projection != null ? projection.toString() : null;
+    }
+
+    synchronized void remove(String channelName) {
+        documents.remove(channelName);
+    }
+
+    synchronized void clear() {
+        documents.clear();
+    }
+
+    /**
+     * @return the updated document or {@code null} when the channel has none
+     */
+    private synchronized JsonElement apply(String channelName, Mode mode, JsonElement element) {
+        try {
+            if (element == null) {
+                throw new JsonParseException("Event data is not JSON");
+            }
+            if (mode == Mode.SNAPSHOT) {
+                documents.put(channelName, element);
+                return element;
+            }
+
+            final JsonElement document = documents.get(channelName);
+            if (document == null) {
+                // waiting for a snapshot
+                return null;
+            }
+
+            final JsonElement patched = mode == Mode.JSON_PATCH
+                ? JsonPatch.apply(document, element.getAsJsonArray())
+                : JsonPatch.merge(document, element);
+            documents.put(channelName, patched);
+            return patched;
+        } catch (JsonParseException | IllegalArgumentException | IllegalStateException e) {
+            documents.remove(channelName);
+            log.error("delta of " + channelName + " not applied, waiting for a snapshot", e);
+            return null;
+        }
+    }
+
+    private static JsonElement project(JsonElement document, String[] path) {
+        JsonElement value = document;
+        for (int i = 0; path != null && value != null && i < path.length; i++) {
+            if (value.isJsonObject()) {
+                value = value.getAsJsonObject().get(path[i]);
+            } else if (value.isJsonArray()) {
+                try {
+                    final int index = Integer.parseInt(path[i]);
+                    value = index >= 0 && index < value.getAsJsonArray().size() ? value.getAsJsonArray().get(index) : null;
+                } catch (NumberFormatException e) {
+                    value = null;
+                }
+            } else {
+                value = null;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.heywhy.flutter_pusher;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Bounded queue of pending event work between the Pusher client thread and the dispatcher thread.
+ *
+ * Only events count against the capacity, control messages (connection changes and errors)
+ * are always accepted and never dropped. What happens to an event arriving at a full buffer
+ * is decided by the {@link OverflowPolicy}.
+ */
+public class EventBuffer {
+
+    public enum OverflowPolicy {
+        /** Drop the oldest queued event to make room. */
+        DROP_OLDEST,
+        /** Drop the incoming event. */
+        DROP_NEWEST,
+        /** Replace a queued event with the same channel and name, otherwise drop the oldest. */
+        CONFLATE,
+        /**
+         * Block the Pusher client thread until there is room, opt-in only: while it waits the
+         * client answers no pings and the server may drop the connection.
+         */
+        BLOCK;
+
+        static OverflowPolicy fromString(String policy) {
+            switch (policy) {
+                case "dropOldest":
+                    return DROP_OLDEST;
+                case "dropNewest":
+                    return DROP_NEWEST;
+                case "conflate":
+                    return CONFLATE;
+                case "block":
+                    return BLOCK;
+                default:
+                    throw new IllegalArgumentException("Unknown overflow policy " + policy);
+            }
+        }
+    }
+
+    /**
+     * Notified of every dropped event, called while the buffer is locked.
+     */
+    public interface DropListener {
+        void onDropped(String key);
+    }
+
+    private static class Entry {
+        String key;
+        Runnable task;
+    }
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final DropListener dropListener;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, Entry> queuedByKey = new HashMap<>();
+    private final ArrayDeque<Entry> spareEntries = new ArrayDeque<>();
+    private int eventCount = 0;
+    private long droppedEvents = 0;
+    private long conflatedEvents = 0;
+
+    public EventBuffer(int capacity, OverflowPolicy policy) {
+        this(capacity, policy, null);
+    }
+
+    public EventBuffer(int capacity, OverflowPolicy policy, DropListener dropListener) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.dropListener = dropListener;
+    }
+
+    /**
+     * Queues the work of an event identified by {@code key}, or of a control message if
+     * {@code key} is {@code null}. Conflated work replaces queued work with the same key
+     * in place, regardless of the overflow policy.
+     */
+    public void offer(String key, boolean isConflated, Runnable task) {
+        synchronized (this) {
+            if (key == null) {
+                entries.add(obtainEntry(null, task));
+                return;
+            }
+
+            final boolean conflate = isConflated || policy == OverflowPolicy.CONFLATE;
+            if (conflate) {
+                final Entry queued = queuedByKey.get(key);
+                if (queued != null) {
+                    queued.task = task;
+                    conflatedEvents++;
+                    return;
+                }
+            }
+
+            while (eventCount >= capacity) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        onDropped(key);
+                        return;
+                    }
+                } else if (policy == OverflowPolicy.DROP_NEWEST) {
+                    onDropped(key);
+                    return;
+                } else {
+                    removeOldestEvent();
+                }
+            }
+
+            final Entry entry = obtainEntry(key, task);
+            entries.add(entry);
+            eventCount++;
+            if (conflate) {
+                queuedByKey.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * The next queued work or {@code null} when the buffer is empty.
+     */
+    public Runnable poll() {
+        synchronized (this) {
+            final Entry entry = entries.poll();
+            if (entry == null) {
+                return null;
+            }
+
+            final Runnable task = entry.task;
+            if (entry.key != null) {
+                eventCount--;
+                forget(entry);
+                notifyAll();
+            }
+            recycle(entry);
+            return task;
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+            queuedByKey.clear();
+            eventCount = 0;
+            notifyAll();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("capacity", capacity);
+            stats.put("policy", policy.name());
+            stats.put("queuedEvents", eventCount);
+            stats.put("droppedEvents", droppedEvents);
+            stats.put("conflatedEvents", conflatedEvents);
+        }
+        return stats;
+    }
+
+    private void removeOldestEvent() {
+        final Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.key != null) {
+                iterator.remove();
+                forget(entry);
+                onDropped(entry.key);
+                recycle(entry);
+                eventCount--;
+                return;
+            }
+        }
+    }
+
+    private void onDropped(String key) {
+        droppedEvents++;
+        if (dropListener != null) {
+            dropListener.onDropped(key);
+        }
+    }
+
+    private Entry obtainEntry(String key, Runnable task) {
+        Entry entry = spareEntries.poll();
+        if (entry == null) {
+            entry = new Entry();
+        }
+        entry.key = key;
+        entry.task = task;
+        return entry;
+    }
+
+    private void recycle(Entry entry) {
+        entry.key = null;
+        entry.task = null;
+        if (spareEntries.size() < capacity) {
+            spareEntries.push(entry);
+        }
+    }
+
+    private void forget(Entry entry) {
+        if (queuedByKey.get(entry.key) == entry) {
+            queuedByKey.remove(entry.key);
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.github.heywhy.flutter_pusher;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands encoded stream messages of a single {@link PusherInstance} over to its {@link MessageSink}.
+ *
+ * Encoding work submitted through {@link #execute(String, boolean, Runnable)} is queued in a bounded
+ * {@link EventBuffer} and runs on a dedicated background scheduler owned by the dispatcher, so that
+ * only the final payload is posted to the main scheduler. At most one payload is waiting on the main
+ * looper at any time; while it is, further work stays in the buffer, whose overflow policy
+ * decides what happens in a burst.
+ *
+ * By default every message is delivered on its own. When batching is enabled, messages are
+ * delivered to Dart as one list per flush, either once {@code maxBatchSize} messages are pending
+ * or after {@code flushInterval} milliseconds, whichever comes first.
+ *
+ * With an {@link EventJournal}, events that find no Dart listener are journaled instead of
+ * lost and replayed once the stream is listened to again, batch by batch and ahead of the
+ * events that arrive meanwhile; those wait in the buffer until the journal is drained. Messages
+ * the journal does not cover, control messages and events of public channels, are held in
+ * memory while Dart listens and delivered right after the replay.
+ */
+public class EventDispatcher {
+
+    private static final int MAX_POOLED_MESSAGES = 64;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String instanceId;
+    private final MessageSink sink;
+    private final EventBuffer buffer;
+    private final InstanceStats stats;
+    private final TaskScheduler mainScheduler;
+    private final TaskScheduler scheduler;
+    private final boolean isBatchingEnabled;
+    private final int maxBatchSize;
+    private final long flushInterval;
+    private final int binaryThreshold;
+    private final EventJournal journal;
+    private final AtomicBoolean isDrainScheduled = new AtomicBoolean(false);
+
+    // only touched on the dispatcher thread, delivering is handed to the main thread while in flight
+    private List<Object> pending;
+    private List<Object> delivering;
+    private List<Object> spare;
+    private final ArrayDeque<EventMessage> messagePool = new ArrayDeque<>();
+    // listened to but not journaled, waiting for the replay to end
+    private final ArrayDeque<Object> heldMessages = new ArrayDeque<>();
+    private boolean isFlushScheduled = false;
+    private boolean isFlushDue = false;
+    private boolean isDelivering = false;
+    private boolean isReplaying = false;
+    private boolean isDeliveringReplay = false;
+
+    // set while journaled events wait, live events must not overtake them
+    private volatile boolean hasJournaledEvents = false;
+
+    // written on the main thread before the delivered runnable is posted back
+    private boolean isListening = false;
+    private boolean isDelivered = false;
+    private long deliveredAtNanos = 0;
+
+    // only written on the main thread
+    private volatile long deliveredMessages = 0;
+    private volatile long mainThreadTime = 0;
+    private volatile long maxMainThreadTime = 0;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isDrainScheduled.set(false);
+            drain();
+        }
+    };
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isFlushScheduled = false;
+            isFlushDue = true;
+            flush();
+        }
+    };
+
+    private final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            isListening = sink.isListening();
+            isDelivered = isListening && deliver(delivering);
+            deliveredAtNanos = System.nanoTime();
+            scheduler.post(deliveredRunnable);
+        }
+    };
+
+    private final Runnable deliveredRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isDeliveringReplay) {
+                isDeliveringReplay = false;
+                if (isDelivered) {
+                    journal.commit();
+                    stats.onReplayed(delivering.size());
+                    stats.onDelivered(delivering, deliveredAtNanos, true);
+                } else {
+                    // still in the journal, replayed on the next listen
+                    journal.rewind();
+                    isReplaying = false;
+                }
+            } else if (!isDelivered && journal != null) {
+                journal(delivering, isListening);
+            } else {
+                // accounted off the main thread, the delivery time was taken there
+                stats.onDelivered(delivering, deliveredAtNanos, isDelivered);
+            }
+            recycle(delivering);
+            isDelivering = false;
+            drain();
+        }
+    };
+
+    private final Runnable replayRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (journal.hasEvents() && !isReplaying) {
+                isReplaying = true;
+                hasJournaledEvents = true;
+                drain();
+            }
+        }
+    };
+
+    public EventDispatcher(
+        String instanceId,
+        MessageSink sink,
+        EventBuffer buffer,
+        InstanceStats stats,
+        TaskScheduler mainScheduler,
+        TaskScheduler scheduler
+    ) {
+        this(instanceId, sink, buffer, stats, mainScheduler, scheduler, false, 1, 0, 0, null);
+    }
+
+    public EventDispatcher(
+        String instanceId,
+        MessageSink sink,
+        EventBuffer buffer,
+        InstanceStats stats,
+        TaskScheduler mainScheduler,
+        TaskScheduler scheduler,
+        boolean isBatchingEnabled,
+        int maxBatchSize,
+        long flushInterval,
+        int binaryThreshold,
+        EventJournal journal
+    ) {
+        this.instanceId = instanceId;
+        this.sink = sink;
+        this.buffer = buffer;
+        this.stats = stats;
+        this.mainScheduler = mainScheduler;
+        this.scheduler = scheduler;
+        this.isBatchingEnabled = isBatchingEnabled;
+        this.maxBatchSize = isBatchingEnabled ? Math.max(1, maxBatchSize) : 1;
+        this.flushInterval = Math.max(0, flushInterval);
+        this.binaryThreshold = Math.max(0, binaryThreshold);
+        this.journal = journal;
+        this.hasJournaledEvents = journal != null && journal.hasEvents();
+        this.pending = new ArrayList<>(this.maxBatchSize);
+        this.spare = new ArrayList<>(this.maxBatchSize);
+    }
+
+    /**
+     * Queues encoding work for the event identified by {@code key} (channel and event name),
+     * the work later runs on the dispatcher thread. Work of a conflated event replaces work
+     * with the same key that is still queued.
+     */
+    public void execute(String key, boolean isConflated, Runnable task) {
+        buffer.offer(key, isConflated, task);
+        scheduleDrain();
+    }
+
+    /**
+     * Queues encoding work for a control message, which is never dropped.
+     */
+    public void execute(Runnable task) {
+        execute(null, false, task);
+    }
+
+    /**
+     * A pooled event message to fill and {@link #send(Object)}, must be called on the dispatcher thread.
+     */
+    public EventMessage obtainEventMessage() {
+        final EventMessage message = messagePool.poll();
+        return message != null ? message : new EventMessage(instanceId);
+    }
+
+    /**
+     * The event data as sent to Dart, must be called on the dispatcher thread.
+     *
+     * Data of at least {@code binaryThreshold} characters is encoded to UTF-8 bytes here, the
+     * message codec writes them as they are and Dart receives a {@code Uint8List}, instead of
+     * the codec encoding a large string on the main thread.
+     */
+    public Object encodeData(String data) {
+        if (binaryThreshold > 0 && data.length() >= binaryThreshold) {
+            return data.getBytes(UTF_8);
+        }
+        return data;
+    }
+
+    /**
+     * The next sequence number of the channel, {@code 0} when its events are not numbered.
+     * Must be called on the dispatcher thread, in delivery order.
+     */
+    public long nextSequence(String channelName) {
+        return journal != null ? journal.nextSequence(channelName) : 0;
+    }
+
+    /**
+     * Replays the journaled events, called once the event sink is listened to.
+     */
+    public void replay() {
+        if (journal != null) {
+            scheduler.post(replayRunnable);
+        }
+    }
+
+    /**
+     * Runs {@code task} on the dispatcher thread after {@code delayMillis}, outside of the event buffer.
+     */
+    public void executeDelayed(Runnable task, long delayMillis) {
+        scheduler.postDelayed(task, delayMillis);
+    }
+
+    /**
+     * Removes the delayed runs of {@code task} that did not run yet.
+     */
+    public void cancel(Runnable task) {
+        scheduler.cancel(task);
+    }
+
+    /**
+     * Queues a ready-to-send message, must be called on the dispatcher thread.
+     */
+    public void send(Object message) {
+        pending.add(message);
+    }
+
+    /**
+     * Drops any pending work and stops the dispatcher thread.
+     */
+    public void shutdown() {
+        buffer.clear();
+        heldMessages.clear();
+        scheduler.shutdown();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Main thread time spent handing messages to the event sink, so the cost per event
+     * can be compared across dispatch modes.
+     */
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new HashMap<>();
+        stats.put("deliveredMessages", deliveredMessages);
+        stats.put("mainThreadTimeNanos", mainThreadTime);
+        stats.put("maxMainThreadTimeNanos", maxMainThreadTime);
+        return stats;
+    }
+
+    public Map<String, Object> getBufferStats() {
+        return buffer.getStats();
+    }
+
+    /**
+     * Stats of the journal, {@code null} when journaling is off.
+     */
+    public Map<String, Object> getJournalStats() {
+        return journal != null ? journal.getStats() : null;
+    }
+
+    /**
+     * Counters of the instance the dispatcher belongs to, shared with its listeners.
+     */
+    public InstanceStats getInstanceStats() {
+        return stats;
+    }
+
+    private void scheduleDrain() {
+        if (isDrainScheduled.compareAndSet(false, true)) {
+            scheduler.post(drainRunnable);
+        }
+    }
+
+    private void drain() {
+        if (isReplaying) {
+            replayNext();
+            return;
+        }
+
+        if (!hasJournaledEvents) {
+            // held behind the replay, they go before what arrived since
+            while (pending.size() < maxBatchSize && !heldMessages.isEmpty()) {
+                pending.add(heldMessages.poll());
+            }
+        }
+
+        Runnable task;
+        while (pending.size() < maxBatchSize && (task = buffer.poll()) != null) {
+            task.run();
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (!isBatchingEnabled || pending.size() >= maxBatchSize || isFlushDue) {
+            flush();
+        } else if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            scheduler.postDelayed(flushRunnable, flushInterval);
+        }
+    }
+
+    private void replayNext() {
+        if (isDelivering) {
+            return;
+        }
+        if (!pending.isEmpty()) {
+            // live messages encoded before the replay started, journaled or held behind the others
+            flush();
+            return;
+        }
+
+        if (journal.read(pending, maxBatchSize, this) > 0) {
+            isDeliveringReplay = true;
+            flush();
+            return;
+        }
+
+        // only events without a binding were left
+        journal.commit();
+        isReplaying = false;
+        hasJournaledEvents = false;
+        drain();
+    }
+
+    private void flush() {
+        if (isDelivering || pending.isEmpty()) {
+            return;
+        }
+
+        if (journal != null && !isDeliveringReplay && !sink.isListening()) {
+            // nobody to deliver to, journaled right away without a trip to the main thread
+            journal(pending, false);
+            isFlushDue = false;
+            return;
+        }
+
+        delivering = pending;
+        pending = spare;
+        spare = null;
+        isFlushDue = false;
+        isDelivering = true;
+        mainScheduler.post(deliverRunnable);
+    }
+
+    private void recycle(List<Object> messages) {
+        release(messages);
+        spare = messages;
+        delivering = null;
+    }
+
+    private void release(List<Object> messages) {
+        for (Object message : messages) {
+            if (message instanceof EventMessage && messagePool.size() < MAX_POOLED_MESSAGES) {
+                messagePool.push((EventMessage) message);
+            }
+        }
+        messages.clear();
+    }
+
+    /**
+     * Copies the undelivered events into the journal and releases them. The other messages are
+     * held until the replay ends when Dart listens, lost otherwise.
+     */
+    private void journal(List<Object> messages, boolean isListening) {
+        for (Object message : messages) {
+            final boolean isJournaled = message instanceof EventMessage && journal.append((EventMessage) message);
+            if (isJournaled || !isListening) {
+                stats.onJournaled(message, isJournaled);
+                if (message instanceof EventMessage && messagePool.size() < MAX_POOLED_MESSAGES) {
+                    messagePool.push((EventMessage) message);
+                }
+            } else {
+                heldMessages.add(message);
+            }
+        }
+        messages.clear();
+        hasJournaledEvents = journal.hasEvents();
+    }
+
+    private boolean deliver(List<Object> messages) {
+        if (hasJournaledEvents && !isDeliveringReplay) {
+            // journaled events go first, these are journaled behind them
+            return false;
+        }
+
+        final long start = System.nanoTime();
+        if (isBatchingEnabled) {
+            sink.send(messages);
+        } else {
+            for (Object message : messages) {
+                sink.send(message);
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        deliveredMessages += messages.size();
+        mainThreadTime += elapsed;
+        if (elapsed > maxMainThreadTime) {
+            maxMainThreadTime = elapsed;
+        }
+        return true;
+    }
+}
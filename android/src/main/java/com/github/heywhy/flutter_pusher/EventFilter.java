@@ -0,0 +1,92 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Predicate on the JSON data of an event, registered together with a binding.
+ *
+ * The value at a dotted {@code path} inside the event data can be required to exist, to equal
+ * a value or to be one of a list of values. Events that do not match never leave the native side.
+ */
+public class EventFilter {
+
+    /**
+     * Filter of a binding without predicate, accepts every event.
+     */
+    public static final EventFilter ANY = new EventFilter(null, null, null, null);
+
+    private final String[] path;
+    private final JsonElement equals;
+    private final JsonArray in;
+    private final Boolean exists;
+
+    private EventFilter(String[] path, JsonElement equals, JsonArray in, Boolean exists) {
+        this.path = path;
+        this.equals = equals;
+        this.in = in;
+        this.exists = exists;
+    }
+
+    /**
+     * Builds a filter from its JSON form, {@code {"path": "a.b", "equals": 1}}, {@code {"path": "a.b", "in": [1, 2]}}
+     * or {@code {"path": "a.b", "exists": true}}.
+     */
+    static EventFilter fromJson(JsonObject filter) {
+        if (!filter.has("path")) {
+            return ANY;
+        }
+
+        return new EventFilter(
+            filter.get("path").getAsString().split("\\."),
+            filter.has("equals") ? filter.get("equals") : null,
+            filter.has("in") ? filter.getAsJsonArray("in") : null,
+            filter.has("exists") ? filter.get("exists").getAsBoolean() : null
+        );
+    }
+
+    /**
+     * The data as a JSON tree, {@link JsonNull} without data and {@code null} when it is not JSON.
+     * The tree is shared with the delta and the parser of the binding, so the data is parsed once.
+     */
+    public static JsonElement parse(String data) {
+        if (data == null) {
+            return JsonNull.INSTANCE;
+        }
+        try {
+            return new JsonParser().parse(data);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param data the data parsed by {@link #parse(String)}, data that is not JSON never matches
+     */
+    public boolean matches(JsonElement data) {
+        if (this == ANY) {
+            return true;
+        }
+        if (data == null) {
+            return false;
+        }
+
+        JsonElement value = data;
+        for (int i = 0; value != null && i < path.length; i++) {
+            value = value.isJsonObject() ? value.getAsJsonObject().get(path[i]) : null;
+        }
+
+        final boolean found = value != null && !value.isJsonNull();
+        if (exists != null && exists != found) {
+            return false;
+        }
+        if (equals != null && !equals.equals(value)) {
+            return false;
+        }
+        return in == null || (found && in.contains(value));
+    }
+}
@@ -0,0 +1,381 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops duplicated events and keeps the events of a channel in sequence order, registered
+ * together with a binding.
+ *
+ * Duplicates are recognized by a 64-bit hash of the channel, the event name and the value of
+ * an id field of the data. The hashes live in two open-addressing tables of longs used as
+ * generations: the current one takes new hashes and becomes the previous one once it holds
+ * {@code maxEvents} hashes or is {@code window} ms old on the monotonic clock. Lookups are
+ * O(1), memory is fixed and an event is remembered for at least the window unless
+ * {@code maxEvents} newer ones arrived.
+ *
+ * The sequence guard reads a number field of the data and drops events whose number is not
+ * above the last one delivered on their channel. When holding, an event arriving ahead of a
+ * gap is held back until the gap is filled or for {@code holdTimeout} ms, after which the held
+ * events are delivered in order and the gap is given up. The release is queued through the
+ * dispatcher like any other work, so that what it sends is flushed right away. The last number
+ * of a channel is kept across reconnects, so events redelivered after a resubscription are
+ * dropped.
+ *
+ * Events are checked on the dispatcher thread, channels are removed on the main thread.
+ */
+public class EventGuard {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_HELD_EVENTS = 64;
+
+    /**
+     * Delivers the events the guard lets through, called on the dispatcher thread.
+     */
+    public interface Sink {
+        void deliver(String channel, String event, String data, long receivedAtNanos);
+    }
+
+    /**
+     * Guard of a binding.
+     */
+    public static class Binding {
+        private final EventGuard guard;
+        private final String[] idPath;
+        private final String[] sequencePath;
+        private final boolean isHolding;
+        private final long holdTimeout;
+
+        Binding(EventGuard guard, String[] idPath, String[] sequencePath, boolean isHolding, long holdTimeout) {
+            this.guard = guard;
+            this.idPath = idPath;
+            this.sequencePath = sequencePath;
+            this.isHolding = isHolding;
+            this.holdTimeout = holdTimeout;
+        }
+
+        /**
+         * Hands the event to {@code sink} unless it is a duplicate or out of order, together with
+         * the held events it lets through.
+         */
+        public void accept(String channel, String event, String data, long receivedAtNanos, Sink sink) {
+            if (idPath != null) {
+                final String id = readScalar(data, idPath);
+                if (id != null && guard.isDuplicate(channel, event, id)) {
+                    guard.stats.onDuplicate();
+                    return;
+                }
+            }
+
+            final String sequence = sequencePath != null ? readScalar(data, sequencePath) : null;
+            if (sequence == null) {
+                sink.deliver(channel, event, data, receivedAtNanos);
+                return;
+            }
+
+            try {
+                guard.sequence(this, channel, Long.parseLong(sequence), event, data, receivedAtNanos, sink);
+            } catch (NumberFormatException e) {
+                // not a sequence number, the event is not ordered
+                sink.deliver(channel, event, data, receivedAtNanos);
+            }
+        }
+    }
+
+    private static class HeldEvent {
+        final String event;
+        final String data;
+        final long receivedAtNanos;
+        final Sink sink;
+
+        HeldEvent(String event, String data, long receivedAtNanos, Sink sink) {
+            this.event = event;
+            this.data = data;
+            this.receivedAtNanos = receivedAtNanos;
+            this.sink = sink;
+        }
+    }
+
+    private class ChannelSequence {
+        final String channel;
+        final TreeMap<Long, HeldEvent> held = new TreeMap<>();
+        long last = -1;
+        boolean isTimeoutScheduled = false;
+        // counts the scheduled timeouts, a release queued by an earlier one is stale
+        int timeouts = 0;
+
+        final Runnable timeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                final int timeout;
+                synchronized (EventGuard.this) {
+                    timeout = timeouts;
+                }
+                dispatcher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        releaseAll(ChannelSequence.this, timeout);
+                    }
+                });
+            }
+        };
+
+        ChannelSequence(String channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final EventDispatcher dispatcher;
+    private final InstanceStats stats;
+    private final int maxEvents;
+    private final long windowNanos;
+    private final Map<String, ChannelSequence> sequences = new HashMap<>();
+    private long[] current;
+    private long[] previous;
+    private int currentSize = 0;
+    private long currentSince = System.nanoTime();
+
+    /**
+     * @param maxEvents number of hashes per generation
+     * @param window    age in milliseconds of a generation when it is replaced
+     */
+    public EventGuard(EventDispatcher dispatcher, InstanceStats stats, int maxEvents, long window) {
+        this.dispatcher = dispatcher;
+        this.stats = stats;
+        this.maxEvents = Math.max(16, maxEvents);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, window));
+
+        // half full at most, so that probes stay short
+        final int capacity = Integer.highestOneBit(this.maxEvents * 2 - 1) << 1;
+        this.current = new long[capacity];
+        this.previous = new long[capacity];
+    }
+
+    /**
+     * Builds the guard of a binding from its JSON form,
+     * {@code {"idField": "a.id", "sequenceField": "a.seq", "ordering": "drop"|"hold", "holdTimeout": 1000}}.
+     */
+    Binding createBinding(JsonObject options) {
+        final String[] idPath = options.has("idField")
+            ? options.get("idField").getAsString().split("\\.")
+            : null;
+        final String[] sequencePath = options.has("sequenceField")
+            ? options.get("sequenceField").getAsString().split("\\.")
+            : null;
+        final boolean isHolding = options.has("ordering") && "hold".equals(options.get("ordering").getAsString());
+        final long holdTimeout = options.has("holdTimeout") ? options.get("holdTimeout").getAsLong() : 1000;
+
+        return new Binding(this, idPath, sequencePath, isHolding, Math.max(0, holdTimeout));
+    }
+
+    /**
+     * Forgets the sequence of the channel and drops its held events.
+     */
+    public synchronized void remove(String channel) {
+        final ChannelSequence sequence = sequences.remove(channel);
+        if (sequence != null && sequence.isTimeoutScheduled) {
+            dispatcher.cancel(sequence.timeoutRunnable);
+        }
+    }
+
+    private synchronized boolean isDuplicate(String channel, String event, String id) {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, channel);
+        hash = hash(hash, event);
+        hash = hash(hash, id);
+        // 0 marks an empty slot
+        if (hash == 0) {
+            hash = 1;
+        }
+
+        if (contains(current, hash) || contains(previous, hash)) {
+            return true;
+        }
+
+        final long now = System.nanoTime();
+        if (currentSize >= maxEvents || now - currentSince >= windowNanos) {
+            final long[] oldest = previous;
+            previous = current;
+            current = oldest;
+            Arrays.fill(current, 0);
+            currentSize = 0;
+            currentSince = now;
+        }
+
+        add(current, hash);
+        currentSize++;
+        return false;
+    }
+
+    private void sequence(
+        Binding binding,
+        String channel,
+        long number,
+        String event,
+        String data,
+        long receivedAtNanos,
+        Sink sink
+    ) {
+        synchronized (this) {
+            ChannelSequence sequence = sequences.get(channel);
+            if (sequence == null) {
+                sequence = new ChannelSequence(channel);
+                sequences.put(channel, sequence);
+            }
+
+            if (sequence.last >= 0 && (number <= sequence.last || sequence.held.containsKey(number))) {
+                stats.onOutOfOrder();
+                return;
+            }
+
+            if (binding.isHolding && sequence.last >= 0 && number > sequence.last + 1) {
+                sequence.held.put(number, new HeldEvent(event, data, receivedAtNanos, sink));
+                if (sequence.held.size() >= MAX_HELD_EVENTS) {
+                    // too far behind, give the gap up
+                    releaseAll(sequence, sequence.timeouts);
+                } else if (!sequence.isTimeoutScheduled) {
+                    sequence.isTimeoutScheduled = true;
+                    sequence.timeouts++;
+                    dispatcher.executeDelayed(sequence.timeoutRunnable, binding.holdTimeout);
+                }
+                return;
+            }
+
+            sequence.last = number;
+        }
+
+        sink.deliver(channel, event, data, receivedAtNanos);
+        releaseConsecutive(channel);
+    }
+
+    /**
+     * Delivers the held events that follow the last delivered one without a gap.
+     */
+    private void releaseConsecutive(String channel) {
+        while (true) {
+            final HeldEvent next;
+            synchronized (this) {
+                final ChannelSequence sequence = sequences.get(channel);
+                if (sequence == null || sequence.held.isEmpty() || sequence.held.firstKey() != sequence.last + 1) {
+                    if (sequence != null && sequence.held.isEmpty() && sequence.isTimeoutScheduled) {
+                        sequence.isTimeoutScheduled = false;
+                        dispatcher.cancel(sequence.timeoutRunnable);
+                    }
+                    return;
+                }
+                final Map.Entry<Long, HeldEvent> entry = sequence.held.pollFirstEntry();
+                sequence.last = entry.getKey();
+                next = entry.getValue();
+            }
+            next.sink.deliver(channel, next.event, next.data, next.receivedAtNanos);
+        }
+    }
+
+    /**
+     * Delivers every held event of the channel in order, skipping the gaps.
+     *
+     * @param timeout the timeout that asked for the release, nothing is released once a later one was scheduled
+     */
+    private void releaseAll(ChannelSequence sequence, int timeout) {
+        final TreeMap<Long, HeldEvent> released;
+        synchronized (this) {
+            if (sequences.get(sequence.channel) != sequence || sequence.timeouts != timeout) {
+                return;
+            }
+            if (sequence.isTimeoutScheduled) {
+                sequence.isTimeoutScheduled = false;
+                dispatcher.cancel(sequence.timeoutRunnable);
+            }
+            if (sequence.held.isEmpty()) {
+                return;
+            }
+            released = new TreeMap<>(sequence.held);
+            sequence.held.clear();
+            sequence.last = released.lastKey();
+        }
+
+        for (HeldEvent event : released.values()) {
+            event.sink.deliver(sequence.channel, event.event, event.data, event.receivedAtNanos);
+        }
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // separator, so that "ab" + "c" and "a" + "bc" differ
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private static boolean contains(long[] table, long hash) {
+        final int mask = table.length - 1;
+        for (int i = (int) (hash ^ (hash >>> 32)) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void add(long[] table, long hash) {
+        final int mask = table.length - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+    }
+
+    /**
+     * The scalar at the dotted {@code path} of the data as a string, {@code null} when there is none.
+     * The data is streamed, everything outside of the path is skipped.
+     */
+    private static String readScalar(String data, String[] path) {
+        if (data == null) {
+            return null;
+        }
+
+        final JsonReader reader = new JsonReader(new StringReader(data));
+        try {
+            for (String name : path) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return null;
+                }
+                reader.beginObject();
+                boolean found = false;
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals(name)) {
+                        found = true;
+                        break;
+                    }
+                    reader.skipValue();
+                }
+                if (!found) {
+                    return null;
+                }
+            }
+
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    return reader.nextString();
+                case BOOLEAN:
+                    return String.valueOf(reader.nextBoolean());
+                default:
+                    return null;
+            }
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+}
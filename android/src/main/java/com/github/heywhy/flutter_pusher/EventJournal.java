@@ -0,0 +1,510 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only journal of the private and presence channel events that could not be delivered
+ * because no Dart listener was attached, replayed in order once one is.
+ *
+ * Events are written by the dispatcher thread to memory-mapped segment files of
+ * {@code segmentSize} bytes, a new segment is started when the current one is full. Once the
+ * segments exceed {@code maxSize} the oldest one is deleted and its events are lost, Dart sees
+ * the gap in the per-channel sequence numbers assigned by {@link #nextSequence(String)}.
+ *
+ * Reading is two-phase: {@link #read(List, int, EventDispatcher)} moves a cursor, which is
+ * either committed once the events are delivered or rewound when delivery failed. The committed
+ * position is stored in each segment, so a journal left behind by a killed process is picked up
+ * by the next one; events read but not committed at that point are replayed again.
+ *
+ * A journal belongs to the identity of its connection, the app key, host and authorization,
+ * and lives in a directory named after it. The identity is stored next to the segments and a
+ * journal written for another one is discarded when opened, so events are never replayed to
+ * another app or user. Replayed events go through the {@link EventRouter} again, those of
+ * bindings removed meanwhile are skipped.
+ *
+ * All methods are synchronized, in practice only the dispatcher thread calls them.
+ */
+public class EventJournal {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String IDENTITY_FILE = "identity";
+    private static final int HEADER_SIZE = 4;
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_BYTES = 1;
+    private static final Gson gson = new Gson();
+
+    // directories of the journals open in this process, each is written by a single journal
+    private static final Set<String> openDirectories = new HashSet<>();
+
+    /**
+     * Segment file, {@code [committed position][record]...} where each record is
+     * {@code [length][type][sequence][channel][event][data]}, a zero length ends the segment.
+     */
+    private static class Segment {
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition = HEADER_SIZE;
+        int readPosition;
+        int committedPosition;
+
+        Segment(File file, int size) throws IOException {
+            this.file = file;
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        boolean hasUnread() {
+            return readPosition < writePosition;
+        }
+
+        void commit() {
+            committedPosition = readPosition;
+            buffer.putInt(0, committedPosition);
+        }
+
+        void delete() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the file is deleted regardless
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private final File directory;
+    private final EventRouter router;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final PusherLogger log;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, long[]> sequences = new HashMap<>();
+    private long nextSegmentIndex = 0;
+    private int records = 0;
+    private long lostEvents = 0;
+    private long skippedEvents = 0;
+    private boolean isClosed = false;
+
+    /**
+     * Opens the journal of {@code identity} under {@code root}, recovering the segments left
+     * there. Instances with the same identity get a directory each, in the order they open.
+     *
+     * @param router routes of the instance, replayed events without one are skipped
+     */
+    public static EventJournal open(
+        File root,
+        String identity,
+        EventRouter router,
+        long maxSize,
+        int segmentSize,
+        PusherLogger log
+    ) throws IOException {
+        final String name = hash(identity);
+        synchronized (openDirectories) {
+            for (int i = 0; ; i++) {
+                final File directory = new File(root, i == 0 ? name : name + "-" + i);
+                if (openDirectories.add(directory.getPath())) {
+                    try {
+                        return new EventJournal(directory, identity, router, maxSize, segmentSize, log);
+                    } catch (IOException e) {
+                        openDirectories.remove(directory.getPath());
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    private EventJournal(
+        File directory,
+        String identity,
+        EventRouter router,
+        long maxSize,
+        int segmentSize,
+        PusherLogger log
+    ) throws IOException {
+        this.directory = directory;
+        this.router = router;
+        this.segmentSize = Math.max(HEADER_SIZE + 1024, segmentSize);
+        this.maxSegments = (int) Math.max(1, maxSize / this.segmentSize);
+        this.log = log;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        checkIdentity(identity);
+        recover();
+    }
+
+    /**
+     * Whether the events of the channel are journaled and numbered.
+     */
+    public static boolean isJournaled(String channelName) {
+        return channelName.startsWith("private-") || channelName.startsWith("presence-");
+    }
+
+    /**
+     * The next sequence number of a journaled channel, starting at 1, or 0 for other channels.
+     */
+    public synchronized long nextSequence(String channelName) {
+        if (!isJournaled(channelName)) {
+            return 0;
+        }
+
+        long[] sequence = sequences.get(channelName);
+        if (sequence == null) {
+            sequence = new long[1];
+            sequences.put(channelName, sequence);
+        }
+        return ++sequence[0];
+    }
+
+    /**
+     * Copies the event out of the pooled message into the journal.
+     *
+     * @return {@code false} when the event is not journaled and therefore lost
+     */
+    public synchronized boolean append(EventMessage message) {
+        if (isClosed || !isJournaled(message.getChannel())) {
+            return false;
+        }
+
+        final Object data = message.getData();
+        final byte type = data instanceof byte[] ? TYPE_BYTES : TYPE_STRING;
+        final byte[] channel = message.getChannel().getBytes(UTF_8);
+        final byte[] event = message.getEventName().getBytes(UTF_8);
+        final byte[] bytes;
+        if (type == TYPE_BYTES) {
+            bytes = (byte[]) data;
+        } else if (data instanceof String) {
+            bytes = ((String) data).getBytes(UTF_8);
+        } else {
+            // data parsed natively is journaled as JSON and replayed for Dart to decode
+            bytes = gson.toJson(data).getBytes(UTF_8);
+        }
+        final int length = 1 + 8 + 4 + channel.length + 4 + event.length + 4 + bytes.length;
+
+        if (HEADER_SIZE + 4 + length > segmentSize) {
+            lostEvents++;
+            log.info("event of {} bytes does not fit a journal segment, dropped", length);
+            return false;
+        }
+
+        try {
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.writePosition + 4 + length > segmentSize) {
+                segment = openSegment();
+            }
+
+            // the record becomes visible to readers once its length is written
+            final MappedByteBuffer buffer = segment.buffer;
+            final int start = segment.writePosition;
+            buffer.position(start + 4);
+            buffer.put(type);
+            buffer.putLong(message.getSequence());
+            putBytes(buffer, channel);
+            putBytes(buffer, event);
+            putBytes(buffer, bytes);
+            buffer.putInt(start, length);
+            segment.writePosition = start + 4 + length;
+            records++;
+            return true;
+        } catch (IOException e) {
+            lostEvents++;
+            log.error("journal append error", e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads up to {@code max} events after the cursor into messages of the dispatcher. Events
+     * whose binding is gone are skipped, they are committed along with the events read.
+     *
+     * @return the number of events read
+     */
+    public synchronized int read(List<Object> messages, int max, EventDispatcher dispatcher) {
+        int read = 0;
+        for (Segment segment : segments) {
+            final MappedByteBuffer buffer = segment.buffer;
+            while (read < max && segment.hasUnread()) {
+                final int start = segment.readPosition;
+                final int length = buffer.getInt(start);
+                buffer.position(start + 4);
+
+                final byte type = buffer.get();
+                final long sequence = buffer.getLong();
+                final String channel = new String(getBytes(buffer), UTF_8);
+                final String event = new String(getBytes(buffer), UTF_8);
+                final byte[] bytes = getBytes(buffer);
+                segment.readPosition = start + 4 + length;
+
+                if (router.getRoute(channel, event) == null) {
+                    // unbound or unsubscribed since it was journaled
+                    skippedEvents++;
+                    continue;
+                }
+
+                final Object data = type == TYPE_BYTES ? bytes : new String(bytes, UTF_8);
+
+                // replayed events are timed from their replay, not from their arrival
+                final EventMessage message = dispatcher.obtainEventMessage();
+                message.set(channel, event, data, System.nanoTime(), sequence, true);
+                messages.add(message);
+                read++;
+            }
+            if (read >= max) {
+                break;
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Marks the events read so far as delivered, deleting the segments fully delivered.
+     */
+    public synchronized void commit() {
+        int committed = 0;
+        while (!segments.isEmpty()) {
+            final Segment segment = segments.get(0);
+            committed += countRecords(segment, segment.committedPosition, segment.readPosition);
+            if (segment.hasUnread()) {
+                segment.commit();
+                break;
+            }
+            segments.remove(0);
+            segment.delete();
+        }
+        records -= committed;
+    }
+
+    /**
+     * Moves the cursor back to the last commit, the events read since are read again.
+     */
+    public synchronized void rewind() {
+        for (Segment segment : segments) {
+            segment.readPosition = segment.committedPosition;
+        }
+    }
+
+    /**
+     * Whether events are waiting to be replayed.
+     */
+    public synchronized boolean hasEvents() {
+        return records > 0;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        final Map<String, Object> stats = new HashMap<>();
+        stats.put("segments", segments.size());
+        stats.put("sizeBytes", (long) segments.size() * segmentSize);
+        stats.put("events", records);
+        stats.put("lostEvents", lostEvents);
+        stats.put("skippedEvents", skippedEvents);
+        return stats;
+    }
+
+    /**
+     * Closes the segment files, they are recovered by the next journal of the identity.
+     */
+    public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        synchronized (openDirectories) {
+            openDirectories.remove(directory.getPath());
+        }
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+        segments.clear();
+    }
+
+    private Segment openSegment() throws IOException {
+        final long index = nextSegmentIndex++;
+        final Segment segment = new Segment(
+            new File(directory, SEGMENT_PREFIX + index + SEGMENT_SUFFIX), segmentSize);
+        segment.readPosition = HEADER_SIZE;
+        segment.commit();
+        segments.add(segment);
+
+        // the oldest events make room, their sequence numbers leave a gap
+        while (segments.size() > maxSegments) {
+            final Segment oldest = segments.remove(0);
+            final int lost = countRecords(oldest, oldest.committedPosition, oldest.writePosition);
+            records -= lost;
+            lostEvents += lost;
+            oldest.delete();
+            log.info("journal full, dropped {} events", lost);
+        }
+        return segment;
+    }
+
+    /**
+     * Discards the segments when they were written for another identity, then stores this one.
+     */
+    private void checkIdentity(String identity) throws IOException {
+        final File file = new File(directory, IDENTITY_FILE);
+        if (file.isFile()) {
+            final byte[] bytes = new byte[(int) file.length()];
+            final FileInputStream input = new FileInputStream(file);
+            try {
+                int offset = 0;
+                int count;
+                while (offset < bytes.length && (count = input.read(bytes, offset, bytes.length - offset)) > 0) {
+                    offset += count;
+                }
+            } finally {
+                input.close();
+            }
+            if (identity.equals(new String(bytes, UTF_8))) {
+                return;
+            }
+        }
+
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File segment : files) {
+                if (segment.getName().startsWith(SEGMENT_PREFIX)) {
+                    log.info("discarding journal segment {} of another connection", segment.getName());
+                    //noinspection ResultOfMethodCallIgnored
+                    segment.delete();
+                }
+            }
+        }
+
+        final FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(identity.getBytes(UTF_8));
+        } finally {
+            output.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final List<Long> indexes = new ArrayList<>();
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    indexes.add(Long.parseLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // not a segment of the journal
+                }
+            }
+        }
+
+        final Long[] sorted = indexes.toArray(new Long[0]);
+        Arrays.sort(sorted);
+        for (Long index : sorted) {
+            final File file = new File(directory, SEGMENT_PREFIX + index + SEGMENT_SUFFIX);
+            if (file.length() != segmentSize) {
+                // written with another segment size, cannot be read back
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                continue;
+            }
+
+            final Segment segment = new Segment(file, segmentSize);
+            final MappedByteBuffer buffer = segment.buffer;
+            segment.committedPosition = Math.max(HEADER_SIZE, buffer.getInt(0));
+            segment.readPosition = segment.committedPosition;
+
+            int position = HEADER_SIZE;
+            int length;
+            while (position + 4 <= segmentSize
+                && (length = buffer.getInt(position)) > 0
+                && position + 4 + length <= segmentSize) {
+                // numbering continues after the recovered events
+                final long sequence = buffer.getLong(position + 5);
+                buffer.position(position + 13);
+                final String channel = new String(getBytes(buffer), UTF_8);
+                long[] last = sequences.get(channel);
+                if (last == null) {
+                    last = new long[1];
+                    sequences.put(channel, last);
+                }
+                last[0] = Math.max(last[0], sequence);
+
+                position += 4 + length;
+            }
+            segment.writePosition = position;
+            segment.readPosition = Math.min(segment.readPosition, position);
+            segment.committedPosition = segment.readPosition;
+
+            records += countRecords(segment, segment.committedPosition, segment.writePosition);
+            segments.add(segment);
+            nextSegmentIndex = index + 1;
+        }
+
+        log.info("journal recovered {} events", records);
+    }
+
+    private static String hash(String identity) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(identity.getBytes(UTF_8));
+            final StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                name.append(Character.forDigit((digest[i] >> 4) & 0xf, 16));
+                name.append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int countRecords(Segment segment, int from, int to) {
+        int count = 0;
+        int position = from;
+        while (position < to) {
+            position += 4 + segment.buffer.getInt(position);
+            count++;
+        }
+        return count;
+    }
+
+    private static void putBytes(MappedByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] getBytes(MappedByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
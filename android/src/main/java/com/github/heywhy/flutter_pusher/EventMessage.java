@@ -0,0 +1,88 @@
+package com.github.heywhy.flutter_pusher;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stream message of a channel event, {@code {isEvent, instanceId, event: {channel, event, data}}}.
+ * Events of journaled channels also carry their {@code seq}, and {@code replayed} when they
+ * come from the {@link EventJournal}.
+ *
+ * Instances are pooled by the {@link EventDispatcher}: the event sink encodes a message
+ * synchronously, so once it has been delivered its maps are refilled for the next event
+ * instead of being allocated again.
+ */
+public class EventMessage extends HashMap<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Object> event = new HashMap<>(8);
+    private String channel;
+    private String eventName;
+    private Object data;
+    private long sequence;
+    private long receivedAtNanos;
+
+    EventMessage(String instanceId) {
+        super(4);
+        put("isEvent", true);
+        put("instanceId", instanceId);
+        put("event", event);
+    }
+
+    /**
+     * @param data the event data, a {@code String} or its UTF-8 bytes for large payloads
+     */
+    public void set(String channel, String eventName, Object data, long receivedAtNanos) {
+        set(channel, eventName, data, receivedAtNanos, 0, false);
+    }
+
+    /**
+     * @param sequence   the number of the event in its channel, {@code 0} when it is not numbered
+     * @param isReplayed whether the event is delivered from the journal
+     */
+    public void set(String channel, String eventName, Object data, long receivedAtNanos, long sequence, boolean isReplayed) {
+        this.channel = channel;
+        this.eventName = eventName;
+        this.data = data;
+        this.sequence = sequence;
+        this.receivedAtNanos = receivedAtNanos;
+        event.put("channel", channel);
+        event.put("event", eventName);
+        event.put("data", data);
+
+        if (sequence > 0) {
+            event.put("seq", sequence);
+        } else {
+            event.remove("seq");
+        }
+        if (isReplayed) {
+            event.put("replayed", true);
+        } else {
+            event.remove("replayed");
+        }
+    }
+
+    String getChannel() {
+        return channel;
+    }
+
+    String getEventName() {
+        return eventName;
+    }
+
+    Object getData() {
+        return data;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * When the event arrived from the Pusher client, to measure its delay until delivery.
+     */
+    long getReceivedAtNanos() {
+        return receivedAtNanos;
+    }
+}
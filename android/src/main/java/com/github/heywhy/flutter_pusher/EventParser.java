@@ -0,0 +1,239 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the JSON data of an event natively, registered together with a binding.
+ *
+ * The data is read with a streaming {@link JsonReader} straight into the maps, lists and
+ * scalars of the standard message codec, so Dart receives ready-made structures instead of a
+ * string to decode on the main isolate. With {@code fields}, only the values at those dotted
+ * paths are kept and everything else is skipped without being materialized; objects in
+ * arrays are projected element by element. When the delta or the filter of the binding already
+ * parsed the data into a tree, that tree is converted instead of reading the data again.
+ *
+ * Only objects and arrays are parsed, other data is delivered as it is and decoded by Dart.
+ */
+public class EventParser {
+
+    /**
+     * Projection tree of the requested fields, a node without children keeps its whole value.
+     */
+    private static class Node {
+        Map<String, Node> children;
+
+        Node child(String name) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node child = children.get(name);
+            if (child == null) {
+                child = new Node();
+                children.put(name, child);
+            }
+            return child;
+        }
+    }
+
+    private final Node fields;
+
+    private EventParser(Node fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Builds a parser from its JSON form, {@code {}} or {@code {"fields": ["a.b", "c"]}}.
+     */
+    static EventParser fromJson(JsonObject parse) {
+        final JsonArray paths = parse.has("fields") && parse.get("fields").isJsonArray()
+            ? parse.getAsJsonArray("fields")
+            : null;
+        if (paths == null || paths.size() == 0) {
+            return new EventParser(null);
+        }
+
+        final Node root = new Node();
+        final List<Node> leaves = new ArrayList<>();
+        for (JsonElement path : paths) {
+            Node node = root;
+            for (String name : path.getAsString().split("\\.")) {
+                node = node.child(name);
+            }
+            leaves.add(node);
+        }
+        // a field inside a requested field is kept as part of its parent
+        for (Node leaf : leaves) {
+            leaf.children = null;
+        }
+        return new EventParser(root);
+    }
+
+    /**
+     * The parsed data, or {@code data} itself when it is not a JSON object or array.
+     */
+    public Object parse(String data) {
+        if (data == null) {
+            return null;
+        }
+
+        final JsonReader reader = new JsonReader(new StringReader(data));
+        try {
+            final JsonToken token = reader.peek();
+            if (token != JsonToken.BEGIN_OBJECT && token != JsonToken.BEGIN_ARRAY) {
+                return data;
+            }
+
+            final Object value = read(reader, fields);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                return data;
+            }
+            return value;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // not JSON, Dart gets the data as sent
+            return data;
+        }
+    }
+
+    /**
+     * The data already parsed into a tree by the filter or the delta of the binding, converted
+     * with the same projection, or {@code null} when it is not a JSON object or array.
+     */
+    public Object parse(JsonElement data) {
+        if (data == null || !(data.isJsonObject() || data.isJsonArray())) {
+            return null;
+        }
+        try {
+            return convert(data, fields);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Object read(JsonReader reader, Node node) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader, node);
+            case BEGIN_ARRAY:
+                final List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(read(reader, node));
+                }
+                reader.endArray();
+                return list;
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return toNumber(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected JSON token " + reader.peek());
+        }
+    }
+
+    private static Map<String, Object> readObject(JsonReader reader, Node node) throws IOException {
+        final Map<String, Object> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (node == null || node.children == null) {
+                map.put(name, read(reader, null));
+                continue;
+            }
+
+            final Node child = node.children.get(name);
+            if (child == null) {
+                reader.skipValue();
+            } else if (child.children == null) {
+                map.put(name, read(reader, null));
+            } else {
+                final JsonToken token = reader.peek();
+                if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+                    map.put(name, read(reader, child));
+                } else {
+                    // the path continues below a scalar, nothing to keep
+                    reader.skipValue();
+                }
+            }
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static Object convert(JsonElement value, Node node) {
+        if (value.isJsonObject()) {
+            final Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<String, JsonElement> member : value.getAsJsonObject().entrySet()) {
+                if (node == null || node.children == null) {
+                    map.put(member.getKey(), convert(member.getValue(), null));
+                    continue;
+                }
+
+                final Node child = node.children.get(member.getKey());
+                if (child == null) {
+                    continue;
+                }
+                if (child.children == null) {
+                    map.put(member.getKey(), convert(member.getValue(), null));
+                } else if (member.getValue().isJsonObject() || member.getValue().isJsonArray()) {
+                    map.put(member.getKey(), convert(member.getValue(), child));
+                }
+            }
+            return map;
+        }
+        if (value.isJsonArray()) {
+            final List<Object> list = new ArrayList<>();
+            for (JsonElement element : value.getAsJsonArray()) {
+                list.add(convert(element, node));
+            }
+            return list;
+        }
+        if (value.isJsonNull()) {
+            return null;
+        }
+
+        final JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            return toNumber(primitive.getAsString());
+        }
+        return primitive.getAsString();
+    }
+
+    /**
+     * Integers become {@code Integer} or {@code Long} as their size requires, other numbers
+     * {@code Double}.
+     */
+    private static Object toNumber(String number) {
+        if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+            try {
+                final long value = Long.parseLong(number);
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException ignored) {
+                // beyond a long, kept as a double like Dart does
+            }
+        }
+        return Double.parseDouble(number);
+    }
+}
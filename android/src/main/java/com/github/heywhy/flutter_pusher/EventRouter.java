@@ -0,0 +1,127 @@
+package com.github.heywhy.flutter_pusher;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routing table of the events bound from Dart, per channel.
+ *
+ * Listeners consult it before doing any work on an incoming event, so events without a
+ * Dart-side binding (e.g. unbound {@code pusher:*} events) are dropped right away.
+ */
+public class EventRouter {
+
+    /**
+     * Binding of an event name on a channel.
+     */
+    public static class Route {
+        private final String key;
+        private final EventFilter filter;
+        private final boolean isConflated;
+        private final DeltaDocuments.Binding delta;
+        private final EventParser parser;
+        private final EventGuard.Binding guard;
+
+        Route(
+            String channelName,
+            String eventName,
+            EventFilter filter,
+            boolean isConflated,
+            DeltaDocuments.Binding delta,
+            EventParser parser,
+            EventGuard.Binding guard
+        ) {
+            this.key = channelName + ":" + eventName;
+            this.filter = filter;
+            this.isConflated = isConflated;
+            this.delta = delta;
+            this.parser = parser;
+            this.guard = guard;
+        }
+
+        /**
+         * Identifies the channel and event name in the event buffer, built once per binding.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public EventFilter getFilter() {
+            return filter;
+        }
+
+        /**
+         * Whether only the latest queued event of the binding needs to be delivered.
+         */
+        public boolean isConflated() {
+            return isConflated;
+        }
+
+        /**
+         * Delta mode of the binding, {@code null} when events are delivered as they are.
+         */
+        public DeltaDocuments.Binding getDelta() {
+            return delta;
+        }
+
+        /**
+         * Parser of the event data, {@code null} when Dart decodes it.
+         */
+        public EventParser getParser() {
+            return parser;
+        }
+
+        /**
+         * Deduplication and ordering of the events, {@code null} when they are delivered as they come.
+         */
+        public EventGuard.Binding getGuard() {
+            return guard;
+        }
+    }
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Route>> routes = new ConcurrentHashMap<>();
+
+    void bind(
+        String channelName,
+        String eventName,
+        EventFilter filter,
+        boolean isConflated,
+        DeltaDocuments.Binding delta,
+        EventParser parser,
+        EventGuard.Binding guard
+    ) {
+        final Route route = new Route(channelName, eventName, filter, isConflated, delta, parser, guard);
+        ConcurrentMap<String, Route> events = routes.get(channelName);
+        if (events == null) {
+            final ConcurrentMap<String, Route> created = new ConcurrentHashMap<>();
+            events = routes.putIfAbsent(channelName, created);
+            if (events == null) {
+                events = created;
+            }
+        }
+        events.put(eventName, route);
+    }
+
+    void unbind(String channelName, String eventName) {
+        final ConcurrentMap<String, Route> events = routes.get(channelName);
+        if (events != null) {
+            events.remove(eventName);
+        }
+    }
+
+    void remove(String channelName) {
+        routes.remove(channelName);
+    }
+
+    void clear() {
+        routes.clear();
+    }
+
+    /**
+     * The binding of the event or {@code null} when the event is not bound on the channel.
+     */
+    public Route getRoute(String channelName, String eventName) {
+        final ConcurrentMap<String, Route> events = routes.get(channelName);
+        return events != null ? events.get(eventName) : null;
+    }
+}
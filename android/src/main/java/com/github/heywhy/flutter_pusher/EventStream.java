@@ -0,0 +1,61 @@
+package com.github.heywhy.flutter_pusher;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Event channel dedicated to a single {@link PusherInstance}, so Dart listeners only receive
+ * messages of the instance they belong to.
+ */
+public class EventStream implements EventChannel.StreamHandler, MessageSink {
+
+    static final String CHANNEL_PREFIX = "com.github.heywhy/pusherStream/";
+
+    /**
+     * Notified on the main thread whenever Dart starts listening.
+     */
+    public interface ListenListener {
+        void onListen();
+    }
+
+    private final PusherLogger log;
+    private volatile EventChannel.EventSink eventSink;
+    private ListenListener listenListener;
+
+    EventStream(BinaryMessenger messenger, String instanceId, PusherLogger log) {
+        this.log = log;
+        final EventChannel channel = new EventChannel(messenger, CHANNEL_PREFIX + instanceId);
+        channel.setStreamHandler(this);
+    }
+
+    void setListenListener(ListenListener listenListener) {
+        this.listenListener = listenListener;
+    }
+
+    @Override
+    public boolean isListening() {
+        return eventSink != null;
+    }
+
+    @Override
+    public void send(Object message) {
+        final EventChannel.EventSink eventSink = this.eventSink;
+        if (eventSink != null) {
+            eventSink.success(message);
+        }
+    }
+
+    @Override
+    public void onListen(Object args, EventChannel.EventSink eventSink) {
+        this.eventSink = eventSink;
+        if (listenListener != null) {
+            listenListener.onListen();
+        }
+    }
+
+    @Override
+    public void onCancel(Object args) {
+        this.eventSink = null;
+        log.debug("onCancel args: {}", args);
+    }
+}
@@ -1,17 +1,15 @@
 package com.github.heywhy.flutter_pusher;
 
-import android.util.Log;
 import com.github.heywhy.flutter_pusher.platform_messages.InstanceMessage;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import io.flutter.plugin.common.EventChannel;
+import com.github.heywhy.flutter_pusher.platform_messages.PlatformMessages;
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry.Registrar;
 
-import java.lang.reflect.Type;
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,35 +19,30 @@ import java.util.Map;
 public class FlutterPusherPlugin implements MethodCallHandler {
 
     public static String TAG = "FlutterPusherPlugin";
-    public static EventChannel.EventSink eventSink;
 
+    private final BinaryMessenger messenger;
+    private final File journalDirectory;
+    private final ConnectionPool connectionPool = new ConnectionPool();
     private Map<String, PusherInstance> pusherInstanceMap = new HashMap<>();
 
+    private FlutterPusherPlugin(BinaryMessenger messenger, File journalDirectory) {
+        this.messenger = messenger;
+        this.journalDirectory = journalDirectory;
+    }
+
     /**
      * Plugin registration.
      */
     public static void registerWith(Registrar registrar) {
         final MethodChannel channel = new MethodChannel(registrar.messenger(), "com.github.heywhy/pusher");
-        final EventChannel eventStream = new EventChannel(registrar.messenger(), "com.github.heywhy/pusherStream");
-
-        channel.setMethodCallHandler(new FlutterPusherPlugin());
-        eventStream.setStreamHandler(new EventChannel.StreamHandler() {
-            @Override
-            public void onListen(Object args, final EventChannel.EventSink eventSink) {
-                FlutterPusherPlugin.eventSink = eventSink;
-            }
 
-            @Override
-            public void onCancel(Object args) {
-                Log.d(TAG, String.format("onCancel args: %s", args != null ? args.toString() : "null"));
-            }
-        });
+        final File journalDirectory = new File(registrar.context().getFilesDir(), "pusher-journal");
+        channel.setMethodCallHandler(new FlutterPusherPlugin(registrar.messenger(), journalDirectory));
     }
 
     @Override
     public void onMethodCall(MethodCall call, Result result) {
-        Type type = new TypeToken<InstanceMessage>(){}.getType();
-        InstanceMessage instanceMessage = new Gson().fromJson(call.arguments.toString(), type);
+        InstanceMessage instanceMessage = PlatformMessages.decode(call.method, call.arguments.toString());
         String instanceId = instanceMessage.getInstanceId();
         PusherInstance instance = getPusherInstance(instanceId);
         if (instance == null) {
@@ -57,12 +50,15 @@ public class FlutterPusherPlugin implements MethodCallHandler {
             throw new IllegalArgumentException(message);
         }
 
-        instance.onMethodCall(call, result);
+        instance.onMethodCall(call, instanceMessage, result);
     }
 
     private PusherInstance getPusherInstance(String instanceId) {
         if (instanceId != null && !pusherInstanceMap.containsKey(instanceId)) {
-            pusherInstanceMap.put(instanceId, new PusherInstance(instanceId));
+            final PusherLogger log = new PusherLogger(instanceId);
+            final EventStream eventStream = new EventStream(messenger, instanceId, log);
+            pusherInstanceMap.put(
+                instanceId, new PusherInstance(instanceId, eventStream, log, journalDirectory, connectionPool));
         }
         return pusherInstanceMap.get(instanceId);
     }
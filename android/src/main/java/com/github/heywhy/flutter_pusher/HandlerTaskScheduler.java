@@ -0,0 +1,59 @@
+package com.github.heywhy.flutter_pusher;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * {@link TaskScheduler} backed by an Android {@link Handler}.
+ */
+public class HandlerTaskScheduler implements TaskScheduler {
+
+    private final Handler handler;
+    private final HandlerThread thread;
+
+    private HandlerTaskScheduler(Handler handler, HandlerThread thread) {
+        this.handler = handler;
+        this.thread = thread;
+    }
+
+    /**
+     * Runs tasks on the main looper, shutting it down only drops pending tasks.
+     */
+    static HandlerTaskScheduler main() {
+        return new HandlerTaskScheduler(new Handler(Looper.getMainLooper()), null);
+    }
+
+    /**
+     * Runs tasks on a dedicated background thread, which is stopped on shutdown.
+     */
+    static HandlerTaskScheduler background(String name) {
+        final HandlerThread thread = new HandlerThread(name, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        return new HandlerTaskScheduler(new Handler(thread.getLooper()), thread);
+    }
+
+    @Override
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+
+    @Override
+    public void shutdown() {
+        handler.removeCallbacksAndMessages(null);
+        if (thread != null) {
+            thread.quit();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of a single {@link PusherInstance}.
+ *
+ * Every stage of the event path records into atomics without taking a lock, so collecting
+ * stays cheap enough to be left on in production; only {@link #snapshot()} walks them all.
+ */
+public class InstanceStats implements EventBuffer.DropListener {
+
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * Histogram with power of two buckets of microseconds.
+     */
+    static class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            final long micros = Math.max(0, nanos / NANOS_PER_MICRO);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            count.incrementAndGet();
+            sum.addAndGet(micros);
+
+            long current;
+            while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+                // retry until the larger value is stored
+            }
+        }
+
+        /**
+         * {@code {count, meanMicros, maxMicros, p50Micros, p90Micros, p99Micros}}, percentiles are
+         * the upper bound of their bucket.
+         */
+        Map<String, Object> snapshot() {
+            final long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+
+            final Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("count", count.get());
+            snapshot.put("meanMicros", total > 0 ? sum.get() / total : 0);
+            snapshot.put("maxMicros", max.get());
+            snapshot.put("p50Micros", percentile(counts, total, 0.5));
+            snapshot.put("p90Micros", percentile(counts, total, 0.9));
+            snapshot.put("p99Micros", percentile(counts, total, 0.99));
+            return snapshot;
+        }
+
+        private static long percentile(long[] counts, long total, double percentile) {
+            final long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static class ChannelCounters {
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+    }
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsDelivered = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong eventsFiltered = new AtomicLong();
+    private final AtomicLong eventsJournaled = new AtomicLong();
+    private final AtomicLong eventsReplayed = new AtomicLong();
+    private final AtomicLong eventsDuplicated = new AtomicLong();
+    private final AtomicLong eventsOutOfOrder = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final ConcurrentMap<String, ChannelCounters> channels = new ConcurrentHashMap<>();
+    private final Histogram encodeTime = new Histogram();
+    private final Histogram queueDelay = new Histogram();
+    private final Histogram authLatency = new Histogram();
+
+    // connection state changes arrive on the Pusher client thread only
+    private final ConcurrentMap<String, AtomicLong> stateTime = new ConcurrentHashMap<>();
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private volatile long stateSinceNanos = System.nanoTime();
+    private boolean hasConnected = false;
+
+    /**
+     * An event arrived from the Pusher client, {@code bytesIn} counts the characters of its data.
+     */
+    public void onReceived(String channelName, String data) {
+        eventsReceived.incrementAndGet();
+        if (data != null) {
+            bytesIn.addAndGet(data.length());
+        }
+        getChannel(channelName).received.incrementAndGet();
+    }
+
+    public void onFiltered() {
+        eventsFiltered.incrementAndGet();
+    }
+
+    void onDuplicate() {
+        eventsDuplicated.incrementAndGet();
+    }
+
+    void onOutOfOrder() {
+        eventsOutOfOrder.incrementAndGet();
+    }
+
+    public void onEncoded(long nanos) {
+        encodeTime.record(nanos);
+    }
+
+    public void onAuthorized(long nanos) {
+        authLatency.record(nanos);
+    }
+
+    /**
+     * Dropped by the event buffer, {@code key} is the {@code channel:event} of the binding.
+     */
+    @Override
+    public void onDropped(String key) {
+        eventsDropped.incrementAndGet();
+        getChannel(key.substring(0, key.indexOf(':'))).dropped.incrementAndGet();
+    }
+
+    /**
+     * Messages handed to the event sink at {@code deliveredAtNanos}, or lost when nobody listened.
+     */
+    void onDelivered(List<Object> messages, long deliveredAtNanos, boolean isDelivered) {
+        for (Object message : messages) {
+            if (!(message instanceof EventMessage)) {
+                continue;
+            }
+
+            final EventMessage eventMessage = (EventMessage) message;
+            if (isDelivered) {
+                eventsDelivered.incrementAndGet();
+                getChannel(eventMessage.getChannel()).delivered.incrementAndGet();
+                queueDelay.record(deliveredAtNanos - eventMessage.getReceivedAtNanos());
+            } else {
+                onLost(eventMessage);
+            }
+        }
+    }
+
+    /**
+     * A message that found no listener, kept in the journal or lost.
+     */
+    void onJournaled(Object message, boolean isJournaled) {
+        if (isJournaled) {
+            eventsJournaled.incrementAndGet();
+        } else if (message instanceof EventMessage) {
+            onLost((EventMessage) message);
+        }
+    }
+
+    void onReplayed(int count) {
+        eventsReplayed.addAndGet(count);
+    }
+
+    void onConnectionStateChange(ConnectionStateChange change) {
+        final long now = System.nanoTime();
+        addStateTime(state, now - stateSinceNanos);
+        state = change.getCurrentState();
+        stateSinceNanos = now;
+
+        if (state == ConnectionState.CONNECTED) {
+            if (hasConnected) {
+                reconnects.incrementAndGet();
+            }
+            hasConnected = true;
+        }
+    }
+
+    void removeChannel(String channelName) {
+        channels.remove(channelName);
+    }
+
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("eventsReceived", eventsReceived.get());
+        snapshot.put("eventsDelivered", eventsDelivered.get());
+        snapshot.put("eventsDropped", eventsDropped.get());
+        snapshot.put("eventsFiltered", eventsFiltered.get());
+        snapshot.put("eventsJournaled", eventsJournaled.get());
+        snapshot.put("eventsReplayed", eventsReplayed.get());
+        snapshot.put("eventsDuplicated", eventsDuplicated.get());
+        snapshot.put("eventsOutOfOrder", eventsOutOfOrder.get());
+        snapshot.put("bytesIn", bytesIn.get());
+        snapshot.put("reconnects", reconnects.get());
+        snapshot.put("encodeTime", encodeTime.snapshot());
+        snapshot.put("queueDelay", queueDelay.snapshot());
+        snapshot.put("authLatency", authLatency.snapshot());
+
+        final Map<String, Object> channelStats = new HashMap<>();
+        for (Map.Entry<String, ChannelCounters> entry : channels.entrySet()) {
+            final Map<String, Object> counters = new HashMap<>();
+            counters.put("received", entry.getValue().received.get());
+            counters.put("delivered", entry.getValue().delivered.get());
+            counters.put("dropped", entry.getValue().dropped.get());
+            channelStats.put(entry.getKey(), counters);
+        }
+        snapshot.put("channels", channelStats);
+
+        // time of each connection state in milliseconds, including the current one
+        final Map<String, Object> states = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : stateTime.entrySet()) {
+            states.put(entry.getKey(), entry.getValue().get() / NANOS_PER_MILLI);
+        }
+        final ConnectionState current = state;
+        final Long currentTime = (Long) states.get(current.name());
+        final long elapsed = (System.nanoTime() - stateSinceNanos) / NANOS_PER_MILLI;
+        states.put(current.name(), (currentTime != null ? currentTime : 0) + elapsed);
+        snapshot.put("connectionStates", states);
+
+        return snapshot;
+    }
+
+    private void onLost(EventMessage message) {
+        eventsDropped.incrementAndGet();
+        getChannel(message.getChannel()).dropped.incrementAndGet();
+    }
+
+    private void addStateTime(ConnectionState state, long nanos) {
+        AtomicLong time = stateTime.get(state.name());
+        if (time == null) {
+            final AtomicLong created = new AtomicLong();
+            time = stateTime.putIfAbsent(state.name(), created);
+            if (time == null) {
+                time = created;
+            }
+        }
+        time.addAndGet(nanos);
+    }
+
+    private ChannelCounters getChannel(String channelName) {
+        ChannelCounters counters = channels.get(channelName);
+        if (counters == null) {
+            final ChannelCounters created = new ChannelCounters();
+            counters = channels.putIfAbsent(channelName, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+}
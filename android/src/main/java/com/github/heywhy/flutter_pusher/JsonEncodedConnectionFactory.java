@@ -1,9 +1,12 @@
 package com.github.heywhy.flutter_pusher;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.pusher.client.util.ConnectionFactory;
 
+import java.util.Collection;
+
 public class JsonEncodedConnectionFactory extends ConnectionFactory {
 
     @Override
@@ -24,4 +27,20 @@ public class JsonEncodedConnectionFactory extends ConnectionFactory {
         return payload.toString();
     }
 
+    /**
+     * Body authorizing several channels at once, {@code channel_name} holds the list of names.
+     */
+    public String getBody(Collection<String> channelNames, String socketId) {
+        JsonArray names = new JsonArray();
+        for (String channelName : channelNames) {
+            names.add(channelName);
+        }
+
+        JsonObject payload = new JsonObject();
+        payload.add("channel_name", names);
+        payload.add("socket_id", new JsonPrimitive(socketId));
+
+        return payload.toString();
+    }
+
 }
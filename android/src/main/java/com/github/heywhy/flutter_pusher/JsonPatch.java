@@ -0,0 +1,214 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+/**
+ * Applies JSON Patch (RFC 6902) and JSON Merge Patch (RFC 7396) documents in place.
+ *
+ * A failing operation leaves the document partially patched, callers discard it then.
+ */
+final class JsonPatch {
+
+    private JsonPatch() {
+    }
+
+    /**
+     * Applies the operations of a JSON Patch to {@code document}.
+     *
+     * @return the patched document, a new root when an operation replaced it
+     * @throws IllegalArgumentException when an operation cannot be applied or a test fails
+     */
+    static JsonElement apply(JsonElement document, JsonArray operations) {
+        for (JsonElement element : operations) {
+            final JsonObject operation = element.getAsJsonObject();
+            final String op = getString(operation, "op");
+            final String path = getString(operation, "path");
+
+            switch (op) {
+                case "add":
+                    document = add(document, path, getValue(operation));
+                    break;
+                case "remove":
+                    remove(document, path);
+                    break;
+                case "replace":
+                    if (path.isEmpty()) {
+                        document = getValue(operation);
+                    } else {
+                        remove(document, path);
+                        document = add(document, path, getValue(operation));
+                    }
+                    break;
+                case "move": {
+                    final String from = getString(operation, "from");
+                    final JsonElement value = get(document, from);
+                    remove(document, from);
+                    document = add(document, path, value);
+                    break;
+                }
+                case "copy":
+                    document = add(document, path, get(document, getString(operation, "from")).deepCopy());
+                    break;
+                case "test":
+                    if (!get(document, path).equals(getValue(operation))) {
+                        throw new IllegalArgumentException("Test failed at " + path);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown patch operation " + op);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Merges {@code patch} into {@code target}, {@code null} members remove the target members.
+     *
+     * @return the merged document
+     */
+    static JsonElement merge(JsonElement target, JsonElement patch) {
+        if (!patch.isJsonObject()) {
+            return patch;
+        }
+
+        final JsonObject result = target != null && target.isJsonObject()
+            ? target.getAsJsonObject()
+            : new JsonObject();
+        for (Map.Entry<String, JsonElement> member : patch.getAsJsonObject().entrySet()) {
+            if (member.getValue().isJsonNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.add(member.getKey(), merge(result.get(member.getKey()), member.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The value at a JSON Pointer (RFC 6901).
+     *
+     * @throws IllegalArgumentException when there is no value at {@code pointer}
+     */
+    static JsonElement get(JsonElement document, String pointer) {
+        JsonElement value = document;
+        for (String token : parse(pointer)) {
+            value = getChild(value, token);
+            if (value == null) {
+                throw new IllegalArgumentException("No value at " + pointer);
+            }
+        }
+        return value;
+    }
+
+    private static JsonElement add(JsonElement document, String pointer, JsonElement value) {
+        if (pointer.isEmpty()) {
+            return value;
+        }
+
+        final JsonElement parent = getParent(document, pointer);
+        final String token = getLastToken(pointer);
+        if (parent.isJsonObject()) {
+            parent.getAsJsonObject().add(token, value);
+        } else if (parent.isJsonArray()) {
+            final JsonArray array = parent.getAsJsonArray();
+            final int index = "-".equals(token) ? array.size() : getIndex(token, array.size() + 1);
+
+            // gson arrays cannot insert, append and shift the tail instead
+            array.add(value);
+            for (int i = array.size() - 1; i > index; i--) {
+                array.set(i, array.get(i - 1));
+            }
+            array.set(index, value);
+        } else {
+            throw new IllegalArgumentException("Cannot add to a value at " + pointer);
+        }
+        return document;
+    }
+
+    private static void remove(JsonElement document, String pointer) {
+        final JsonElement parent = getParent(document, pointer);
+        final String token = getLastToken(pointer);
+        if (parent.isJsonObject() && parent.getAsJsonObject().has(token)) {
+            parent.getAsJsonObject().remove(token);
+        } else if (parent.isJsonArray()) {
+            final JsonArray array = parent.getAsJsonArray();
+            array.remove(getIndex(token, array.size()));
+        } else {
+            throw new IllegalArgumentException("No value at " + pointer);
+        }
+    }
+
+    private static JsonElement getParent(JsonElement document, String pointer) {
+        if (pointer.isEmpty()) {
+            throw new IllegalArgumentException("The root has no parent");
+        }
+        return get(document, pointer.substring(0, pointer.lastIndexOf('/')));
+    }
+
+    private static String getLastToken(String pointer) {
+        return unescape(pointer.substring(pointer.lastIndexOf('/') + 1));
+    }
+
+    private static JsonElement getChild(JsonElement value, String token) {
+        if (value.isJsonObject()) {
+            return value.getAsJsonObject().get(token);
+        }
+        if (value.isJsonArray()) {
+            final JsonArray array = value.getAsJsonArray();
+            return array.get(getIndex(token, array.size()));
+        }
+        return null;
+    }
+
+    private static String[] parse(String pointer) {
+        if (pointer.isEmpty()) {
+            return new String[0];
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("Invalid pointer " + pointer);
+        }
+
+        final String[] tokens = pointer.substring(1).split("/", -1);
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = unescape(tokens[i]);
+        }
+        return tokens;
+    }
+
+    private static String unescape(String token) {
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+
+    private static int getIndex(String token, int size) {
+        final int index;
+        try {
+            index = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid array index " + token);
+        }
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Array index out of bounds " + token);
+        }
+        return index;
+    }
+
+    private static String getString(JsonObject operation, String member) {
+        final JsonElement value = operation.get(member);
+        if (value == null || !value.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Missing " + member + " in patch operation");
+        }
+        return value.getAsString();
+    }
+
+    private static JsonElement getValue(JsonObject operation) {
+        final JsonElement value = operation.get("value");
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value in patch operation");
+        }
+        return value;
+    }
+}
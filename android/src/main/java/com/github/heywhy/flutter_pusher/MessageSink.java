@@ -0,0 +1,17 @@
+package com.github.heywhy.flutter_pusher;
+
+/**
+ * Receiver of the stream messages of an instance on the Dart side.
+ */
+public interface MessageSink {
+
+    /**
+     * Whether a listener is attached, messages sent without one are lost.
+     */
+    boolean isListening();
+
+    /**
+     * Sends a message, must be called on the main thread.
+     */
+    void send(Object message);
+}
@@ -0,0 +1,248 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.pusher.client.channel.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Members of the subscribed presence channels, user id to user info, kept on the native side.
+ *
+ * Dart pages through a roster on demand and otherwise only receives the changes: member
+ * updates accumulate in a pending diff per channel until it is taken, so a burst of joins
+ * and leaves reaches Dart as a single batch of added, removed and updated members.
+ */
+public class PresenceRoster {
+
+    private static class Members {
+        final LinkedHashMap<String, String> members = new LinkedHashMap<>();
+        final LinkedHashMap<String, String> added = new LinkedHashMap<>();
+        final LinkedHashMap<String, String> updated = new LinkedHashMap<>();
+        final List<String> removed = new ArrayList<>();
+        boolean hasSnapshot = false;
+        boolean isDiffScheduled = false;
+
+        boolean hasChanges() {
+            return !added.isEmpty() || !updated.isEmpty() || !removed.isEmpty();
+        }
+
+        void put(String id, String info) {
+            final boolean isMember = members.containsKey(id);
+            final String previousInfo = members.put(id, info);
+
+            if (added.containsKey(id)) {
+                added.put(id, info);
+            } else if (removed.remove(id) || (isMember && !equals(previousInfo, info))) {
+                updated.put(id, info);
+            } else if (!isMember) {
+                added.put(id, info);
+            }
+        }
+
+        void remove(String id) {
+            if (!members.containsKey(id)) {
+                return;
+            }
+            members.remove(id);
+            updated.remove(id);
+            if (added.remove(id) == null) {
+                removed.add(id);
+            }
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private final ConcurrentMap<String, Members> rosters = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the roster of a channel with the members received on subscription.
+     *
+     * The first snapshot of a channel is not reported as a diff, Dart pages through it
+     * instead. Later snapshots, after a resubscription, are reconciled with the roster
+     * and only their differences are reported.
+     *
+     * @return whether a diff has to be scheduled
+     */
+    public boolean setMembers(String channelName, Map<String, String> users) {
+        final Members roster = getOrCreate(channelName);
+        synchronized (roster) {
+            if (!roster.hasSnapshot) {
+                roster.members.clear();
+                roster.members.putAll(users);
+                roster.hasSnapshot = true;
+                return false;
+            }
+
+            final List<String> gone = new ArrayList<>();
+            for (String id : roster.members.keySet()) {
+                if (!users.containsKey(id)) {
+                    gone.add(id);
+                }
+            }
+            for (String id : gone) {
+                roster.remove(id);
+            }
+            for (Map.Entry<String, String> user : users.entrySet()) {
+                roster.put(user.getKey(), user.getValue());
+            }
+            return scheduleDiff(roster);
+        }
+    }
+
+    /**
+     * @return whether a diff has to be scheduled
+     */
+    public boolean putMember(String channelName, String id, String info) {
+        final Members roster = getOrCreate(channelName);
+        synchronized (roster) {
+            roster.put(id, info);
+            return scheduleDiff(roster);
+        }
+    }
+
+    /**
+     * @return whether a diff has to be scheduled
+     */
+    public boolean removeMember(String channelName, String id) {
+        final Members roster = rosters.get(channelName);
+        if (roster == null) {
+            return false;
+        }
+        synchronized (roster) {
+            roster.remove(id);
+            return scheduleDiff(roster);
+        }
+    }
+
+    /**
+     * Takes the changes accumulated since the last diff, {@code {channel, added, removed, updated}},
+     * or {@code null} when there are none.
+     */
+    public Map<String, Object> takeDiff(String channelName) {
+        final Members roster = rosters.get(channelName);
+        if (roster == null) {
+            return null;
+        }
+        synchronized (roster) {
+            roster.isDiffScheduled = false;
+            if (!roster.hasChanges()) {
+                return null;
+            }
+
+            final Map<String, Object> diff = new HashMap<>();
+            diff.put("channel", channelName);
+            diff.put("added", toMembers(roster.added));
+            diff.put("updated", toMembers(roster.updated));
+            diff.put("removed", new ArrayList<>(roster.removed));
+            roster.added.clear();
+            roster.updated.clear();
+            roster.removed.clear();
+            return diff;
+        }
+    }
+
+    /**
+     * A page of the roster in join order, {@code {count, members: [{id, info}]}}.
+     */
+    public Map<String, Object> getMembers(String channelName, int offset, int limit) {
+        final Map<String, Object> page = new HashMap<>();
+        final List<Map<String, Object>> members = new ArrayList<>();
+        final Members roster = rosters.get(channelName);
+
+        int count = 0;
+        if (roster != null) {
+            synchronized (roster) {
+                count = roster.members.size();
+                int index = 0;
+                for (Map.Entry<String, String> member : roster.members.entrySet()) {
+                    if (members.size() >= limit) {
+                        break;
+                    }
+                    if (index++ >= offset) {
+                        members.add(toMember(member.getKey(), member.getValue()));
+                    }
+                }
+            }
+        }
+
+        page.put("count", count);
+        page.put("members", members);
+        return page;
+    }
+
+    /**
+     * The member with the given id, {@code {id, info}}, or {@code null} when it is not in the roster.
+     */
+    public Map<String, Object> getMember(String channelName, String id) {
+        final Members roster = rosters.get(channelName);
+        if (roster == null) {
+            return null;
+        }
+        synchronized (roster) {
+            return roster.members.containsKey(id) ? toMember(id, roster.members.get(id)) : null;
+        }
+    }
+
+    void remove(String channelName) {
+        rosters.remove(channelName);
+    }
+
+    void clear() {
+        rosters.clear();
+    }
+
+    /**
+     * Converts the users of a subscription into the id to info map of a roster.
+     */
+    public static Map<String, String> toUsers(Set<User> users) {
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (User user : users) {
+            result.put(user.getId(), user.getInfo());
+        }
+        return result;
+    }
+
+    private Members getOrCreate(String channelName) {
+        Members roster = rosters.get(channelName);
+        if (roster == null) {
+            final Members created = new Members();
+            roster = rosters.putIfAbsent(channelName, created);
+            if (roster == null) {
+                roster = created;
+            }
+        }
+        return roster;
+    }
+
+    private static boolean scheduleDiff(Members roster) {
+        if (roster.isDiffScheduled || !roster.hasChanges()) {
+            return false;
+        }
+        roster.isDiffScheduled = true;
+        return true;
+    }
+
+    private static List<Map<String, Object>> toMembers(Map<String, String> members) {
+        final List<Map<String, Object>> result = new ArrayList<>(members.size());
+        for (Map.Entry<String, String> member : members.entrySet()) {
+            result.add(toMember(member.getKey(), member.getValue()));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> toMember(String id, String info) {
+        final Map<String, Object> member = new HashMap<>(2);
+        member.put("id", id);
+        member.put("info", info);
+        return member;
+    }
+}
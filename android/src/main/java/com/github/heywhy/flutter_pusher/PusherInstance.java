@@ -1,53 +1,105 @@
 package com.github.heywhy.flutter_pusher;
 
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
 import com.github.heywhy.flutter_pusher.listeners.EventChannelListener;
 import com.github.heywhy.flutter_pusher.listeners.PresenceChannelListener;
 import com.github.heywhy.flutter_pusher.listeners.PrivateChannelListener;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.github.heywhy.flutter_pusher.platform_messages.BindInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.BulkInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.DocumentQueryInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.InitInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.InstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.LifecycleInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.LogLevelInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.PlatformMessages;
+import com.github.heywhy.flutter_pusher.platform_messages.PresenceQueryInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.SubscriptionInstanceMessage;
+import com.github.heywhy.flutter_pusher.platform_messages.TriggerInstanceMessage;
 import com.pusher.client.Pusher;
 import com.pusher.client.PusherOptions;
 import com.pusher.client.channel.Channel;
+import com.pusher.client.channel.PrivateChannel;
 import com.pusher.client.connection.ConnectionEventListener;
-import com.pusher.client.connection.ConnectionState;
 import com.pusher.client.connection.ConnectionStateChange;
 import com.pusher.client.util.ConnectionFactory;
-import com.pusher.client.util.HttpAuthorizer;
 import com.pusher.client.util.UrlEncodedConnectionFactory;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
-import org.json.JSONObject;
 
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-
-import static com.github.heywhy.flutter_pusher.FlutterPusherPlugin.TAG;
-import static com.github.heywhy.flutter_pusher.FlutterPusherPlugin.eventSink;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class PusherInstance implements MethodChannel.MethodCallHandler {
 
+    private static final int DEFAULT_BUFFER_CAPACITY = 4096;
+    private static final String STATUS_OK = "ok";
+
     private Pusher pusher;
+    private SharedConnection connection;
     private String instanceId;
-    private boolean isLoggingEnabled = false;
-    private Map<String, Channel> channels = new HashMap<>();
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private EventDispatcher dispatcher;
+    private BatchAuthorizer authorizer;
+    private ReconnectManager reconnectManager;
+    private ClientEventPublisher publisher;
+    private AutoConnectManager autoConnect;
+    private final EventRouter router = new EventRouter();
+    private final PresenceRoster roster = new PresenceRoster();
+    private final DeltaDocuments documents;
+    private EventGuard guard;
+    private final InstanceStats stats = new InstanceStats();
+    private TaskScheduler statsScheduler;
 
     private EventChannelListener eventListener;
     private PrivateChannelListener eventListenerPrivate;
     private PresenceChannelListener eventListenerPresence;
 
-    PusherInstance(String instanceId) {
+    private final EventStream eventStream;
+    private final PusherLogger log;
+    private final File journalDirectory;
+    private final ConnectionPool connectionPool;
+
+    PusherInstance(
+        String instanceId,
+        EventStream eventStream,
+        PusherLogger log,
+        File journalDirectory,
+        ConnectionPool connectionPool
+    ) {
         this.instanceId = instanceId;
+        this.eventStream = eventStream;
+        this.log = log;
+        this.journalDirectory = journalDirectory;
+        this.connectionPool = connectionPool;
+        this.documents = new DeltaDocuments(log);
+        this.dispatcher = createDispatcher(getEventBuffer(null), null, 0, null);
+
+        // events journaled while nobody listened are replayed to the new listener
+        eventStream.setListenListener(new EventStream.ListenListener() {
+            @Override
+            public void onListen() {
+                dispatcher.replay();
+            }
+        });
     }
 
     @Override
     public void onMethodCall(MethodCall call, MethodChannel.Result result) {
+        onMethodCall(call, PlatformMessages.decode(call.method, call.arguments.toString()), result);
+    }
+
+    /**
+     * Handles a call whose arguments were already decoded by {@link PlatformMessages}.
+     */
+    void onMethodCall(MethodCall call, InstanceMessage message, MethodChannel.Result result) {
         switch (call.method) {
             case "init":
-                init(call, result);
+                init((InitInstanceMessage) message, result);
                 break;
             case "connect":
                 connect(call, result);
@@ -56,23 +108,53 @@ public class PusherInstance implements MethodChannel.MethodCallHandler {
                 disconnect(call, result);
                 break;
             case "subscribe":
-                subscribe(call, result);
+                subscribe((SubscriptionInstanceMessage) message, result);
                 break;
             case "unsubscribe":
-                unsubscribe(call, result);
+                unsubscribe((SubscriptionInstanceMessage) message, result);
                 break;
             case "bind":
-                bind(call, result);
+                bind((BindInstanceMessage) message, result);
                 break;
             case "unbind":
-                unbind(call, result);
+                unbind((BindInstanceMessage) message, result);
+                break;
+            case "subscribeAll":
+                subscribeAll((BulkInstanceMessage) message, result);
+                break;
+            case "bindAll":
+                bindAll((BulkInstanceMessage) message, result);
                 break;
             case "trigger":
-                // trigger(call, result);
+                trigger((TriggerInstanceMessage) message, result);
+                break;
+            case "getPresenceMembers":
+                getPresenceMembers((PresenceQueryInstanceMessage) message, result);
+                break;
+            case "getPresenceMember":
+                getPresenceMember((PresenceQueryInstanceMessage) message, result);
+                break;
+            case "getDocument":
+                getDocument((DocumentQueryInstanceMessage) message, result);
                 break;
             case "getSocketId":
                 getSocketId(call, result);
                 break;
+            case "getDispatcherStats":
+                getDispatcherStats(call, result);
+                break;
+            case "getBufferStats":
+                getBufferStats(call, result);
+                break;
+            case "getStats":
+                getStats(call, result);
+                break;
+            case "setLogLevel":
+                setLogLevel((LogLevelInstanceMessage) message, result);
+                break;
+            case "setLifecycleState":
+                setLifecycleState((LifecycleInstanceMessage) message, result);
+                break;
             default:
                 result.notImplemented();
                 break;
@@ -80,139 +162,212 @@ public class PusherInstance implements MethodChannel.MethodCallHandler {
     }
 
     private void initListeners() {
-        eventListener = new EventChannelListener(instanceId, isLoggingEnabled);
-        eventListenerPrivate = new PrivateChannelListener(instanceId, isLoggingEnabled);
-        eventListenerPresence = new PresenceChannelListener(instanceId, isLoggingEnabled);
+        eventListener = new EventChannelListener(
+            instanceId, dispatcher, router, reconnectManager, log);
+        eventListenerPrivate = new PrivateChannelListener(
+            instanceId, dispatcher, router, reconnectManager, log);
+        eventListenerPresence = new PresenceChannelListener(
+            instanceId, dispatcher, router, roster, reconnectManager, log);
     }
 
-    private void init(MethodCall call, MethodChannel.Result result) {
+    private void init(InitInstanceMessage message, MethodChannel.Result result) {
         if (pusher != null) {
-            for (Map.Entry<String, Channel> entry : channels.entrySet()) {
-                String name = entry.getKey();
-                pusher.unsubscribe(name);
-                channels.remove(name);
+            // removing through the iterator of the concurrent map is safe while events arrive
+            final Iterator<String> names = channels.keySet().iterator();
+            while (names.hasNext()) {
+                final String channelName = names.next();
+                pusher.unsubscribe(channelName);
+                if (authorizer != null) {
+                    // the authorizer may outlive the instance on a shared connection
+                    authorizer.unregister(channelName);
+                }
+                names.remove();
             }
         }
+        router.clear();
+        roster.clear();
+        documents.clear();
+        if (connection != null) {
+            // closed unless other instances still share it, with its reconnections and client events
+            connectionPool.release(connection, instanceId);
+            connection = null;
+            reconnectManager = null;
+            publisher = null;
+        }
+        if (autoConnect != null) {
+            autoConnect.shutdown();
+            autoConnect = null;
+        }
 
         try {
-            final JSONObject json = new JSONObject(call.arguments.toString());
-            final JSONObject options = json.getJSONObject("options");
-
-            if (json.has("isLoggingEnabled")) {
-                isLoggingEnabled = json.getBoolean("isLoggingEnabled");
+            final InitInstanceMessage.InitOptions options = message.getOptions();
+
+            // enableLogging maps to debug, setLogLevel changes it at runtime
+            log.setLevel(message.getIsLoggingEnabled() ? PusherLogger.Level.DEBUG : PusherLogger.Level.OFF);
+
+            // instances with the same connection options share a client when asked to
+            final String key = options.getShareConnection() ? ConnectionPool.getKey(message) : null;
+            SharedConnection shared = connectionPool.acquire(key);
+            if (shared == null) {
+                final BatchAuthorizer batchAuthorizer = options.getAuth() != null ? getAuthorizer(options.getAuth()) : null;
+                shared = connectionPool.add(
+                    key, createPusher(message, batchAuthorizer), batchAuthorizer, options, log);
+            } else {
+                log.info("sharing the connection of app key {}", message.getAppKey());
             }
+            connection = shared;
+            authorizer = shared.getAuthorizer();
+
+            // events are delivered one by one unless batching is requested
+            dispatcher.shutdown();
+            dispatcher = createDispatcher(
+                getEventBuffer(options.getBuffer()),
+                options.getBatching(),
+                options.getBinaryThreshold(),
+                getEventJournal(message)
+            );
+            guard = new EventGuard(
+                dispatcher, stats, options.getDedup().getMaxEvents(), options.getDedup().getWindow());
+            if (eventStream.isListening()) {
+                // events recovered from a previous process
+                dispatcher.replay();
+            }
+            scheduleStats(options.getStatsInterval());
+
+            pusher = connection.getPusher();
+            // reconnections and the client event rate are per socket, not per instance
+            reconnectManager = connection.getReconnectManager();
+            publisher = connection.getPublisher();
+            connection.setResyncListener(instanceId, createResyncListener());
+            autoConnect = createAutoConnectManager(options.getAutoConnect());
+            initListeners();
 
-            // setup options
-            final PusherOptions pusherOptions = new PusherOptions();
-
-            if (options.has("auth")) {
-                final JSONObject auth = options.getJSONObject("auth");
-                final String endpoint = auth.getString("endpoint");
-                final Type mapType = new TypeToken<Map<String, String>>() {}.getType();
-                final Map<String, String> headers = new Gson().fromJson(auth.get("headers").toString(), mapType);
+            log.info("init (app key {})", message.getAppKey());
+            result.success(null);
+        } catch (Exception e) {
+            log.error("init error", e);
+            // Dart waits for init before connecting, do not leave it hanging
+            result.error("INIT_ERROR", e.getMessage(), null);
+        }
+    }
 
-                pusherOptions.setAuthorizer(getAuthorizer(endpoint, headers));
-            }
+    private Pusher createPusher(InitInstanceMessage message, BatchAuthorizer authorizer) {
+        final InitInstanceMessage.InitOptions options = message.getOptions();
 
-            if (options.has("activityTimeout")) {
-                pusherOptions.setActivityTimeout(options.getInt("activityTimeout"));
-            }
-            if (options.has("cluster")) {
-                pusherOptions.setCluster(options.getString("cluster"));
-            }
-            if (options.has("host")) {
-                pusherOptions.setHost(options.getString("host"));
-            }
+        // setup options
+        final PusherOptions pusherOptions = new PusherOptions();
 
-            // defaults to encrypted connection on port 443
-            final int port = options.has("port") ? options.getInt("port") : 443;
-            final boolean encrypted = !options.has("encrypted") || options.getBoolean("encrypted");
+        if (authorizer != null) {
+            pusherOptions.setAuthorizer(authorizer);
+        }
 
-            if (encrypted) {
-                pusherOptions.setWssPort(port);
-            } else {
-                pusherOptions.setWsPort(port);
-            }
-            pusherOptions.setEncrypted(encrypted);
+        if (options.getActivityTimeout() > 0) {
+            pusherOptions.setActivityTimeout(options.getActivityTimeout());
+        }
+        if (options.getCluster() != null) {
+            pusherOptions.setCluster(options.getCluster());
+        }
+        if (options.getHost() != null) {
+            pusherOptions.setHost(options.getHost());
+        }
 
+        // defaults to encrypted connection on port 443
+        final int port = options.getPort() > 0 ? options.getPort() : 443;
+        final boolean encrypted = options.getEncrypted();
 
-            // create client
-            pusher = new Pusher(json.getString("appKey"), pusherOptions);
-            initListeners();
+        if (encrypted) {
+            pusherOptions.setWssPort(port);
+        } else {
+            pusherOptions.setWsPort(port);
+        }
+        pusherOptions.setEncrypted(encrypted);
 
-            if (isLoggingEnabled) {
-                Log.d(TAG, "init");
-            }
-            result.success(null);
-        } catch (Exception e) {
-            if (isLoggingEnabled) {
-                Log.d(TAG, "init error: " + e.getMessage());
-                e.printStackTrace();
-            }
+        // managed reconnection replaces the one of the client
+        final InitInstanceMessage.ReconnectOption reconnect = options.getReconnect();
+        if (reconnect != null) {
+            pusherOptions.setMaxReconnectionAttempts(0);
         }
+
+        return new Pusher(message.getAppKey(), pusherOptions);
     }
 
     private void connect(MethodCall call, MethodChannel.Result result) {
-        pusher.connect(new ConnectionEventListener() {
+        if (autoConnect != null) {
+            // opened once there is a channel to listen to
+            autoConnect.onConnectRequested();
+        } else {
+            openConnection();
+        }
+
+        log.info("connect");
+        result.success(null);
+    }
+
+    private void openConnection() {
+        // the listener stays attached to the current client, keep it on the matching dispatcher
+        final EventDispatcher dispatcher = this.dispatcher;
+        connection.connect(instanceId, new ConnectionEventListener() {
             @Override
             public void onConnectionStateChange(final ConnectionStateChange change) {
-                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                stats.onConnectionStateChange(change);
+                dispatcher.execute(new Runnable() {
                     @Override
                     public void run() {
-                        try {
-                            final JSONObject eventStreamMessageJson = new JSONObject();
-                            final JSONObject connectionStateChangeJson = new JSONObject();
-
-                            connectionStateChangeJson.put("currentState", change.getCurrentState().toString());
-                            connectionStateChangeJson.put("previousState", change.getPreviousState().toString());
-                            eventStreamMessageJson.put("connectionStateChange", connectionStateChangeJson);
-                            eventStreamMessageJson.put("instanceId", instanceId);
-                            eventSink.success(eventStreamMessageJson.toString());
-                        } catch (Exception e) {
-                            if (isLoggingEnabled) {
-                                Log.d(TAG, "onConnectionStateChange error: " + e.getMessage());
-                                e.printStackTrace();
-                            }
-                        }
+                        sendConnectionStateChange(dispatcher, change);
                     }
                 });
             }
 
             @Override
             public void onError(final String message, final String code, final Exception ex) {
-                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                dispatcher.execute(new Runnable() {
                     @Override
                     public void run() {
-                        try {
-                            final String exMessage = ex != null ? ex.getMessage() : null;
-                            final JSONObject eventStreamMessageJson = new JSONObject();
-                            final JSONObject connectionErrorJson = new JSONObject();
-
-                            connectionErrorJson.put("instanceId", instanceId);
-                            connectionErrorJson.put("message", message);
-                            connectionErrorJson.put("code", code);
-                            connectionErrorJson.put("exception", exMessage);
-                            eventStreamMessageJson.put("connectionError", connectionErrorJson);
-                            eventStreamMessageJson.put("instanceId", instanceId);
-
-                            eventSink.success(eventStreamMessageJson.toString());
-
-                        } catch (Exception e) {
-                            if (isLoggingEnabled) {
-                                Log.d(TAG, "onError exception: " + e.getMessage());
-                                e.printStackTrace();
-                            }
-                        }
+                        sendConnectionError(dispatcher, message, code, ex);
                     }
                 });
             }
 
-        }, ConnectionState.ALL);
+        });
+    }
+
+    private void closeConnection() {
+        connection.disconnect(instanceId);
+    }
+
+    private void sendConnectionStateChange(EventDispatcher dispatcher, ConnectionStateChange change) {
+        try {
+            final Map<String, Object> eventStreamMessage = new HashMap<>();
+            final Map<String, Object> connectionStateChange = new HashMap<>();
+
+            connectionStateChange.put("currentState", change.getCurrentState().toString());
+            connectionStateChange.put("previousState", change.getPreviousState().toString());
+            eventStreamMessage.put("connectionStateChange", connectionStateChange);
+            eventStreamMessage.put("instanceId", instanceId);
+            dispatcher.send(eventStreamMessage);
+        } catch (Exception e) {
+            log.error("onConnectionStateChange error", e);
+        }
+    }
+
+    private void sendConnectionError(EventDispatcher dispatcher, String message, String code, Exception ex) {
+        try {
+            final String exMessage = ex != null ? ex.getMessage() : null;
+            final Map<String, Object> eventStreamMessage = new HashMap<>();
+            final Map<String, Object> connectionError = new HashMap<>();
+
+            connectionError.put("instanceId", instanceId);
+            connectionError.put("message", message);
+            connectionError.put("code", code);
+            connectionError.put("exception", exMessage);
+            eventStreamMessage.put("connectionError", connectionError);
+            eventStreamMessage.put("instanceId", instanceId);
+
+            dispatcher.send(eventStreamMessage);
 
-        if (isLoggingEnabled) {
-            Log.d(TAG, "connect");
+        } catch (Exception e) {
+            log.error("onError exception", e);
         }
-        result.success(null);
     }
 
 
@@ -220,124 +375,344 @@ public class PusherInstance implements MethodChannel.MethodCallHandler {
         result.success(pusher.getConnection().getSocketId());
     }
 
-    private void disconnect(MethodCall call, MethodChannel.Result result) {
-        pusher.disconnect();
-        if (isLoggingEnabled) {
-            Log.d(TAG, "disconnect");
-        }
-        result.success(null);
+    private void getPresenceMembers(PresenceQueryInstanceMessage message, MethodChannel.Result result) {
+        result.success(roster.getMembers(message.getChannelName(), message.getOffset(), message.getLimit()));
     }
 
-    private void subscribe(MethodCall call, MethodChannel.Result result) {
+    private void getPresenceMember(PresenceQueryInstanceMessage message, MethodChannel.Result result) {
+        result.success(roster.getMember(message.getChannelName(), message.getUserId()));
+    }
+
+    private void getDocument(DocumentQueryInstanceMessage message, MethodChannel.Result result) {
+        result.success(documents.getDocument(message.getChannelName(), message.getPath()));
+    }
+
+    private void getDispatcherStats(MethodCall call, MethodChannel.Result result) {
+        result.success(dispatcher.getStats());
+    }
+
+    private void getBufferStats(MethodCall call, MethodChannel.Result result) {
+        result.success(dispatcher.getBufferStats());
+    }
 
+    private void setLogLevel(LogLevelInstanceMessage message, MethodChannel.Result result) {
         try {
-            final JSONObject json = new JSONObject(call.arguments.toString());
-            final String channelName = json.getString("channelName");
-            final String channelType = channelName.split("-")[0];
-            Channel channel = channels.get(channelName);
+            log.setLevel(PusherLogger.Level.fromString(message.getLevel()));
+            result.success(null);
+        } catch (IllegalArgumentException e) {
+            result.error("INVALID_LOG_LEVEL", e.getMessage(), null);
+        }
+    }
 
-            if (channel != null && channel.isSubscribed()) {
-                if (isLoggingEnabled) {
-                    Log.d(TAG, "Already subscribed, ignoring ...");
-                }
-                result.success(null);
-                return;
-            }
+    private void getStats(MethodCall call, MethodChannel.Result result) {
+        result.success(getStatsSnapshot());
+    }
 
-            switch (channelType) {
-                case "private":
-                    channel = pusher.subscribePrivate(channelName, eventListenerPrivate);
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, "subscribe (private)");
-                    }
-                    break;
-                case "presence":
-                    channel = pusher.subscribePresence(channelName, eventListenerPresence);
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, "subscribe (presence)");
-                    }
-                    break;
-                default:
-                    channel = pusher.subscribe(channelName, eventListener);
+    private Map<String, Object> getStatsSnapshot() {
+        final Map<String, Object> snapshot = stats.snapshot();
+        snapshot.put("dispatcher", dispatcher.getStats());
+        snapshot.put("buffer", dispatcher.getBufferStats());
+        snapshot.put("journal", dispatcher.getJournalStats());
+        return snapshot;
+    }
+
+    /**
+     * Sends a stats snapshot to the event stream every {@code interval} milliseconds, {@code 0} turns it off.
+     */
+    private void scheduleStats(final long interval) {
+        if (statsScheduler != null) {
+            statsScheduler.shutdown();
+            statsScheduler = null;
+        }
+        if (interval <= 0) {
+            return;
+        }
+
+        final TaskScheduler scheduler = HandlerTaskScheduler.main();
+        scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                final Map<String, Object> eventStreamMessage = new HashMap<>();
+                eventStreamMessage.put("stats", getStatsSnapshot());
+                eventStreamMessage.put("instanceId", instanceId);
 
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, "subscribe");
+                final EventDispatcher dispatcher = PusherInstance.this.dispatcher;
+                dispatcher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatcher.send(eventStreamMessage);
                     }
-                    break;
+                });
+                scheduler.postDelayed(this, interval);
             }
+        }, interval);
+        statsScheduler = scheduler;
+    }
+
+    private void disconnect(MethodCall call, MethodChannel.Result result) {
+        if (autoConnect != null) {
+            autoConnect.onDisconnectRequested();
+        }
+        closeConnection();
+        log.info("disconnect");
+        result.success(null);
+    }
 
-            channels.put(channelName, channel);
+    private void subscribe(SubscriptionInstanceMessage message, MethodChannel.Result result) {
+
+        try {
+            subscribeChannel(message.getChannelName());
+            onChannelsChanged();
             result.success(null);
         } catch (Exception e) {
-            if (isLoggingEnabled) {
-                Log.d(TAG, "subscribe error: " + e.getMessage());
-                e.printStackTrace();
+            log.error("subscribe error", e);
+            // e.g. the channel is owned by another instance of the shared connection
+            result.error("SUBSCRIBE_ERROR", getErrorStatus(e), null);
+        }
+
+    }
+
+    /**
+     * Subscribes to every channel of the message and binds its events in one pass, the
+     * result maps each channel name to {@code {status, events: {eventName: status}}}.
+     */
+    private void subscribeAll(BulkInstanceMessage message, MethodChannel.Result result) {
+        final Map<String, Object> statuses = new HashMap<>();
+
+        for (BulkInstanceMessage.ChannelSpec spec : message.getChannels()) {
+            final String channelName = spec.getChannelName();
+            final Map<String, Object> channelStatus = new HashMap<>();
+
+            try {
+                subscribeChannel(channelName);
+                channelStatus.put("status", STATUS_OK);
+                channelStatus.put("events", bindEvents(channelName, spec.getEvents()));
+            } catch (Exception e) {
+                log.error("subscribeAll error (" + channelName + ")", e);
+                channelStatus.put("status", getErrorStatus(e));
+                channelStatus.put("events", new HashMap<String, Object>());
             }
+            statuses.put(channelName, channelStatus);
         }
 
+        onChannelsChanged();
+        result.success(statuses);
     }
 
-    private void unsubscribe(MethodCall call, MethodChannel.Result result) {
+    private Channel subscribeChannel(String channelName) {
+        final String channelType = channelName.split("-")[0];
+        Channel channel = channels.get(channelName);
+
+        if (channel != null && channel.isSubscribed()) {
+            log.debug("already subscribed to {}, ignoring ...", channelName);
+            return channel;
+        }
+
+        connection.claim(channelName, instanceId);
+        switch (channelType) {
+            case "private":
+                registerAuthorization(channelName);
+                channel = pusher.subscribePrivate(channelName, eventListenerPrivate);
+                log.info("subscribe (private) {}", channelName);
+                break;
+            case "presence":
+                registerAuthorization(channelName);
+                channel = pusher.subscribePresence(channelName, eventListenerPresence);
+                log.info("subscribe (presence) {}", channelName);
+                break;
+            default:
+                channel = pusher.subscribe(channelName, eventListener);
+                log.info("subscribe {}", channelName);
+                break;
+        }
+
+        channels.put(channelName, channel);
+        return channel;
+    }
+
+    private void unsubscribe(SubscriptionInstanceMessage message, MethodChannel.Result result) {
         try {
-            final JSONObject json = new JSONObject(call.arguments.toString());
-            final String channelName = json.getString("channelName");
+            final String channelName = message.getChannelName();
             pusher.unsubscribe(channelName);
             channels.remove(channelName);
-
-            if (isLoggingEnabled) {
-                Log.d(TAG, String.format("unsubscribe (%s)", channelName));
+            connection.unclaim(channelName, instanceId);
+            router.remove(channelName);
+            roster.remove(channelName);
+            documents.remove(channelName);
+            guard.remove(channelName);
+            if (authorizer != null) {
+                authorizer.unregister(channelName);
             }
+            reconnectManager.onUnsubscribed(channelName);
+            stats.removeChannel(channelName);
+            onChannelsChanged();
+
+            log.info("unsubscribe {}", channelName);
             result.success(null);
         } catch (Exception e) {
-            if (isLoggingEnabled) {
-                Log.d(TAG, "unsubscribe error: " + e.getMessage());
-                e.printStackTrace();
-            }
+            log.error("unsubscribe error", e);
         }
 
     }
 
-    private void bind(MethodCall call, MethodChannel.Result result) {
+    private void onChannelsChanged() {
+        if (autoConnect != null) {
+            autoConnect.onChannelsChanged(channels.size());
+        }
+    }
+
+    private void setLifecycleState(LifecycleInstanceMessage message, MethodChannel.Result result) {
+        if (autoConnect != null) {
+            autoConnect.onLifecycleStateChanged(message.getState());
+        }
+        result.success(null);
+    }
+
+    private void bind(BindInstanceMessage message, MethodChannel.Result result) {
         try {
-            final JSONObject json = new JSONObject(call.arguments.toString());
-            final String channelName = json.getString("channelName");
-            final String channelType = channelName.split("-")[0];
-            final String eventName = json.getString("eventName");
+            final EventFilter filter = message.getFilter() != null
+                ? EventFilter.fromJson(message.getFilter())
+                : EventFilter.ANY;
+
+            final DeltaDocuments.Binding delta = message.getDelta() != null
+                ? documents.createBinding(message.getDelta())
+                : null;
+
+            final EventParser parser = message.getParse() != null
+                ? EventParser.fromJson(message.getParse())
+                : null;
+
+            final EventGuard.Binding eventGuard = message.getGuard() != null
+                ? guard.createBinding(message.getGuard())
+                : null;
+
+            bindEvent(
+                message.getChannelName(),
+                message.getEventName(),
+                filter,
+                message.getConflate(),
+                delta,
+                parser,
+                eventGuard
+            );
+            result.success(null);
+        } catch (Exception e) {
+            log.error("bind exception", e);
+        }
+    }
 
-            Channel channel = channels.get(channelName);
+    /**
+     * Binds the events of every channel of the message in one pass, the result maps each
+     * channel name to {@code {status, events: {eventName: status}}}.
+     */
+    private void bindAll(BulkInstanceMessage message, MethodChannel.Result result) {
+        final Map<String, Object> statuses = new HashMap<>();
 
-            switch (channelType) {
-                case "private":
-                    channel.bind(eventName, eventListenerPrivate);
-                    break;
-                case "presence":
-                    channel.bind(eventName, eventListenerPresence);
-                    break;
-                default:
-                    channel.bind(eventName, eventListener);
-                    break;
-            }
+        for (BulkInstanceMessage.ChannelSpec spec : message.getChannels()) {
+            final String channelName = spec.getChannelName();
+            final Map<String, Object> channelStatus = new HashMap<>();
 
-            if (isLoggingEnabled) {
-                Log.d(TAG, String.format("bind (%s)", eventName));
+            if (channels.containsKey(channelName)) {
+                channelStatus.put("status", STATUS_OK);
+                channelStatus.put("events", bindEvents(channelName, spec.getEvents()));
+            } else {
+                channelStatus.put("status", "not subscribed");
+                channelStatus.put("events", new HashMap<String, Object>());
             }
-            result.success(null);
-        } catch (Exception e) {
-            if (isLoggingEnabled) {
-                Log.d(TAG, String.format("bind exception: %s", e.getMessage()));
-                e.printStackTrace();
+            statuses.put(channelName, channelStatus);
+        }
+
+        result.success(statuses);
+    }
+
+    private Map<String, Object> bindEvents(String channelName, List<String> eventNames) {
+        final Map<String, Object> statuses = new HashMap<>();
+
+        for (String eventName : eventNames) {
+            try {
+                bindEvent(channelName, eventName, EventFilter.ANY, false, null, null, null);
+                statuses.put(eventName, STATUS_OK);
+            } catch (Exception e) {
+                log.error("bind exception (" + eventName + ")", e);
+                statuses.put(eventName, getErrorStatus(e));
             }
         }
+        return statuses;
     }
 
-    private void unbind(MethodCall call, MethodChannel.Result result) {
+    private void bindEvent(
+        String channelName,
+        String eventName,
+        EventFilter filter,
+        boolean isConflated,
+        DeltaDocuments.Binding delta,
+        EventParser parser,
+        EventGuard.Binding eventGuard
+    ) {
+        final String channelType = channelName.split("-")[0];
+
+        Channel channel = channels.get(channelName);
+        // every patch has to reach the document, a conflated one would be lost
+        final boolean isPatch = delta != null && delta.getMode() != DeltaDocuments.Mode.SNAPSHOT;
+        router.bind(channelName, eventName, filter, isConflated && !isPatch, delta, parser, eventGuard);
+
+        switch (channelType) {
+            case "private":
+                channel.bind(eventName, eventListenerPrivate);
+                break;
+            case "presence":
+                channel.bind(eventName, eventListenerPresence);
+                break;
+            default:
+                channel.bind(eventName, eventListener);
+                break;
+        }
+
+        log.debug("bind {} on {}", eventName, channelName);
+    }
+
+    private static String getErrorStatus(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * Queues a client event, it is sent once the rate limit allows it.
+     */
+    private void trigger(TriggerInstanceMessage message, MethodChannel.Result result) {
+        final String channelName = message.getChannelName();
+        final String channelType = channelName.split("-")[0];
+
+        if (!"private".equals(channelType) && !"presence".equals(channelType)) {
+            result.error("TRIGGER_ERROR", "Client events need a private or presence channel, got " + channelName, null);
+            return;
+        }
+        final Channel channel = channels.get(channelName);
+        if (channel == null) {
+            result.error("TRIGGER_ERROR", "Not subscribed to " + channelName, null);
+            return;
+        }
+        if (!channel.isSubscribed()) {
+            // the event would be dropped when sent, Dart waits for pusher:subscription_succeeded
+            result.error("TRIGGER_ERROR", "Subscription to " + channelName + " has not succeeded yet", null);
+            return;
+        }
+        if (!publisher.trigger((PrivateChannel) channel, message.getEventName(), message.getData(), message.getLatestWins())) {
+            result.error("TRIGGER_ERROR", "Client event queue is full", null);
+            return;
+        }
+
+        log.trace("queued {} on {}: {}", message.getEventName(), channelName, PusherLogger.truncate(message.getData()));
+        result.success(null);
+    }
+
+    private void unbind(BindInstanceMessage message, MethodChannel.Result result) {
         try {
-            final JSONObject json = new JSONObject(call.arguments.toString());
-            final String channelName = json.getString("channelName");
+            final String channelName = message.getChannelName();
             final String channelType = channelName.split("-")[0];
-            final String eventName = json.getString("eventName");
+            final String eventName = message.getEventName();
 
             Channel channel = channels.get(channelName);
+            router.unbind(channelName, eventName);
             switch (channelType) {
                 case "private":
                     channel.unbind(eventName, eventListenerPrivate);
@@ -350,27 +725,146 @@ public class PusherInstance implements MethodChannel.MethodCallHandler {
                     break;
             }
 
-            if (isLoggingEnabled) {
-                Log.d(TAG, String.format("unbind (%s)", eventName));
-            }
+            log.debug("unbind {} on {}", eventName, channelName);
             result.success(null);
         } catch (Exception e) {
-            if (isLoggingEnabled) {
-                Log.d(TAG, String.format("unbind exception: %s", e.getMessage()));
-                e.printStackTrace();
+            log.error("unbind exception", e);
+        }
+    }
+
+    private EventDispatcher createDispatcher(
+        EventBuffer buffer,
+        InitInstanceMessage.BatchingOption batching,
+        int binaryThreshold,
+        EventJournal journal
+    ) {
+        final TaskScheduler mainScheduler = HandlerTaskScheduler.main();
+        final TaskScheduler scheduler = HandlerTaskScheduler.background("PusherDispatcher-" + instanceId);
+
+        if (batching == null) {
+            return new EventDispatcher(
+                instanceId, eventStream, buffer, stats, mainScheduler, scheduler, false, 1, 0, binaryThreshold, journal);
+        }
+
+        return new EventDispatcher(
+            instanceId,
+            eventStream,
+            buffer,
+            stats,
+            mainScheduler,
+            scheduler,
+            true,
+            batching.getMaxBatchSize(),
+            batching.getFlushInterval(),
+            binaryThreshold,
+            journal
+        );
+    }
+
+    private ReconnectManager.ResyncListener createResyncListener() {
+        return new ReconnectManager.ResyncListener() {
+            @Override
+            public void onResynced(final Map<String, Object> resync) {
+                final EventDispatcher dispatcher = PusherInstance.this.dispatcher;
+                dispatcher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final Map<String, Object> eventStreamMessage = new HashMap<>();
+                        eventStreamMessage.put("resynced", resync);
+                        eventStreamMessage.put("instanceId", instanceId);
+                        dispatcher.send(eventStreamMessage);
+                    }
+                });
+
+                log.info("resynced {}", resync);
             }
+        };
+    }
+
+    private AutoConnectManager createAutoConnectManager(InitInstanceMessage.AutoConnectOption options) {
+        if (options == null) {
+            return null;
         }
+
+        final AutoConnectManager.Connector connector = new AutoConnectManager.Connector() {
+            @Override
+            public void connect() {
+                openConnection();
+            }
+
+            @Override
+            public void disconnect() {
+                closeConnection();
+            }
+        };
+
+        return new AutoConnectManager(
+            HandlerTaskScheduler.main(),
+            connector,
+            log,
+            options.getIdleTimeout(),
+            options.getBackgroundTimeout(),
+            options.getDisconnectInBackground()
+        );
     }
 
-    private HttpAuthorizer getAuthorizer(String endpoint, Map<String, String> headers) {
-        final ConnectionFactory connection = headers.containsValue("application/json")
-            ? new JsonEncodedConnectionFactory()
-            : new UrlEncodedConnectionFactory();
+    private EventJournal getEventJournal(InitInstanceMessage message) {
+        final InitInstanceMessage.JournalOption options = message.getOptions().getJournal();
+        if (options == null) {
+            return null;
+        }
 
-        final HttpAuthorizer authorizer = new HttpAuthorizer(endpoint, connection);
-        authorizer.setHeaders(headers);
+        try {
+            return EventJournal.open(
+                journalDirectory,
+                ConnectionPool.getIdentity(message),
+                router,
+                options.getMaxSize(),
+                options.getSegmentSize(),
+                log
+            );
+        } catch (IOException e) {
+            // events are delivered as usual, only lost again while nobody listens
+            log.error("journal error", e);
+            return null;
+        }
+    }
 
-        return authorizer;
+    private EventBuffer getEventBuffer(InitInstanceMessage.BufferOption options) {
+        // never blocks by default, a held back Pusher client thread would miss its pings
+        if (options == null) {
+            return new EventBuffer(DEFAULT_BUFFER_CAPACITY, EventBuffer.OverflowPolicy.DROP_OLDEST, stats);
+        }
+
+        return new EventBuffer(
+            options.getCapacity(),
+            EventBuffer.OverflowPolicy.fromString(options.getOverflowPolicy()),
+            stats
+        );
+    }
+
+    private void registerAuthorization(String channelName) {
+        // authorized along with the other channels once the socket id is known
+        if (authorizer != null) {
+            authorizer.register(channelName);
+        }
+    }
+
+    private BatchAuthorizer getAuthorizer(InitInstanceMessage.AuthOption auth) {
+        final String endpoint = auth.getEndpoint();
+        final Map<String, String> headers = auth.getHeaders();
+        final boolean isJson = headers.containsValue("application/json");
+        final ConnectionFactory connection = isJson
+            ? new JsonEncodedConnectionFactory()
+            : new UrlEncodedConnectionFactory();
 
+        // batched requests are JSON encoded, url encoded backends keep one request per channel
+        return new BatchAuthorizer(
+            endpoint,
+            headers,
+            connection,
+            auth.getBatch() && isJson ? new JsonEncodedConnectionFactory() : null,
+            stats
+        );
     }
 }
@@ -0,0 +1,164 @@
+package com.github.heywhy.flutter_pusher;
+
+import android.util.Log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.helpers.NOPLoggerFactory;
+
+import static com.github.heywhy.flutter_pusher.FlutterPusherPlugin.TAG;
+
+/**
+ * Leveled logger of a single {@link PusherInstance}, shared with its listeners.
+ *
+ * Messages use slf4j {@code {}} placeholders and are only formatted once the level is known
+ * to be enabled, so disabled levels cost a field read. The level can be changed at any time.
+ * Logs go through slf4j; when the app ships no slf4j binding they fall back to logcat.
+ */
+public class PusherLogger {
+
+    public enum Level {
+        OFF,
+        ERROR,
+        INFO,
+        DEBUG,
+        TRACE;
+
+        static Level fromString(String level) {
+            switch (level) {
+                case "off":
+                    return OFF;
+                case "error":
+                    return ERROR;
+                case "info":
+                    return INFO;
+                case "debug":
+                    return DEBUG;
+                case "trace":
+                    return TRACE;
+                default:
+                    throw new IllegalArgumentException("Unknown log level " + level);
+            }
+        }
+    }
+
+    private static final int MAX_PAYLOAD_LENGTH = 256;
+
+    private final Logger logger;
+    private final boolean isLogcat;
+    private final String prefix;
+    private volatile Level level = Level.OFF;
+
+    PusherLogger(String instanceId) {
+        this.logger = LoggerFactory.getLogger(PusherInstance.class);
+        this.isLogcat = LoggerFactory.getILoggerFactory() instanceof NOPLoggerFactory;
+        this.prefix = "[" + instanceId + "] ";
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() <= this.level.ordinal() && this.level != Level.OFF;
+    }
+
+    public void error(String message, Throwable t) {
+        if (isEnabled(Level.ERROR)) {
+            write(Level.ERROR, message, null, t);
+        }
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            write(Level.INFO, message, null, null);
+        }
+    }
+
+    public void info(String format, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            write(Level.INFO, format, new Object[]{arg}, null);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            write(Level.INFO, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public void debug(String format, Object arg) {
+        if (isEnabled(Level.DEBUG)) {
+            write(Level.DEBUG, format, new Object[]{arg}, null);
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) {
+            write(Level.DEBUG, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    public void trace(String format, Object arg1, Object arg2, Object arg3) {
+        if (isEnabled(Level.TRACE)) {
+            write(Level.TRACE, format, new Object[]{arg1, arg2, arg3}, null);
+        }
+    }
+
+    /**
+     * Wraps a payload so that only its first characters are logged, cut when it is formatted.
+     */
+    public static Object truncate(final String payload) {
+        return new Object() {
+            @Override
+            public String toString() {
+                if (payload == null || payload.length() <= MAX_PAYLOAD_LENGTH) {
+                    return String.valueOf(payload);
+                }
+                return payload.substring(0, MAX_PAYLOAD_LENGTH) + "... (" + payload.length() + " chars)";
+            }
+        };
+    }
+
+    private void write(Level level, String format, Object[] args, Throwable t) {
+        final String message = prefix + (args != null ? MessageFormatter.arrayFormat(format, args).getMessage() : format);
+
+        if (isLogcat) {
+            switch (level) {
+                case ERROR:
+                    Log.e(TAG, message, t);
+                    break;
+                case INFO:
+                    Log.i(TAG, message);
+                    break;
+                case DEBUG:
+                    Log.d(TAG, message);
+                    break;
+                default:
+                    Log.v(TAG, message);
+                    break;
+            }
+            return;
+        }
+
+        switch (level) {
+            case ERROR:
+                logger.error(message, t);
+                break;
+            case INFO:
+                logger.info(message);
+                break;
+            case DEBUG:
+                logger.debug(message);
+                break;
+            default:
+                logger.trace(message);
+                break;
+        }
+    }
+}
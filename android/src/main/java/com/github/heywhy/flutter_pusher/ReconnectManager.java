@@ -0,0 +1,183 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.pusher.client.Pusher;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Recovers the connection after a drop and reports when all channels are subscribed again.
+ *
+ * In managed mode the reconnection of the Pusher client is turned off and replaced by
+ * exponential backoff with jitter, so many clients dropped at once do not reconnect in
+ * lockstep. Either way the Pusher client resubscribes all its channels in one pass once
+ * connected, and the manager reports a single resync with the downtime and the time it took
+ * to resubscribe, as soon as the last channel is subscribed.
+ */
+public class ReconnectManager {
+
+    /**
+     * Receives the resync report, {@code {channels, attempts, downtime, resubscribeTime}}
+     * with times in milliseconds.
+     */
+    public interface ResyncListener {
+        void onResynced(Map<String, Object> resync);
+    }
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final Pusher pusher;
+    private final Set<String> channelNames;
+    private final TaskScheduler scheduler;
+    private final ResyncListener listener;
+    private final boolean isManaged;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+    private final Random random = new Random();
+
+    private final Set<String> pendingChannels = new HashSet<>();
+    private boolean isDisconnectRequested = false;
+    private boolean isConnected = false;
+    private int attempts = 0;
+    private int resyncAttempts = 0;
+    private long droppedAtNanos = 0;
+    private long connectedAtNanos = 0;
+
+    private final Runnable reconnectRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (ReconnectManager.this) {
+                if (isDisconnectRequested || isConnected) {
+                    return;
+                }
+            }
+            pusher.connect();
+        }
+    };
+
+    /**
+     * @param channelNames live view of the subscribed channels
+     * @param maxAttempts  attempts before giving up in managed mode, {@code 0} for no limit
+     */
+    public ReconnectManager(
+        Pusher pusher,
+        Set<String> channelNames,
+        TaskScheduler scheduler,
+        ResyncListener listener,
+        boolean isManaged,
+        long initialDelay,
+        long maxDelay,
+        int maxAttempts
+    ) {
+        this.pusher = pusher;
+        this.channelNames = channelNames;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.isManaged = isManaged;
+        this.initialDelay = Math.max(1, initialDelay);
+        this.maxDelay = Math.max(this.initialDelay, maxDelay);
+        this.maxAttempts = maxAttempts;
+    }
+
+    synchronized void onConnectRequested() {
+        isDisconnectRequested = false;
+        attempts = 0;
+    }
+
+    synchronized void onDisconnectRequested() {
+        isDisconnectRequested = true;
+        droppedAtNanos = 0;
+        pendingChannels.clear();
+    }
+
+    /**
+     * Called on the Pusher client thread for every connection state change.
+     */
+    public void onConnectionStateChange(ConnectionStateChange change) {
+        final ConnectionState state = change.getCurrentState();
+        Map<String, Object> resync = null;
+
+        synchronized (this) {
+            if (state == ConnectionState.CONNECTED) {
+                isConnected = true;
+                if (droppedAtNanos != 0) {
+                    connectedAtNanos = System.nanoTime();
+                    resyncAttempts = attempts;
+                    pendingChannels.clear();
+                    pendingChannels.addAll(channelNames);
+                    resync = takeResyncIfDone();
+                }
+                attempts = 0;
+            } else {
+                if (isConnected && !isDisconnectRequested) {
+                    droppedAtNanos = System.nanoTime();
+                }
+                isConnected = false;
+
+                if (state == ConnectionState.DISCONNECTED && isManaged && !isDisconnectRequested) {
+                    scheduleReconnect();
+                }
+            }
+        }
+
+        if (resync != null) {
+            listener.onResynced(resync);
+        }
+    }
+
+    /**
+     * Called on the Pusher client thread once a channel is subscribed.
+     */
+    public void onSubscriptionSucceeded(String channelName) {
+        settle(channelName);
+    }
+
+    void onUnsubscribed(String channelName) {
+        settle(channelName);
+    }
+
+    private void settle(String channelName) {
+        final Map<String, Object> resync;
+        synchronized (this) {
+            if (!pendingChannels.remove(channelName)) {
+                return;
+            }
+            resync = takeResyncIfDone();
+        }
+        if (resync != null) {
+            listener.onResynced(resync);
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (maxAttempts > 0 && attempts >= maxAttempts) {
+            return;
+        }
+
+        // equal jitter: half of the exponential delay is kept, the other half is random
+        final long delay = Math.min(maxDelay, initialDelay << Math.min(attempts, 20));
+        attempts++;
+        scheduler.postDelayed(reconnectRunnable, delay / 2 + (long) (random.nextDouble() * (delay / 2)));
+    }
+
+    private Map<String, Object> takeResyncIfDone() {
+        if (droppedAtNanos == 0 || !pendingChannels.isEmpty()) {
+            return null;
+        }
+
+        final long now = System.nanoTime();
+        final Map<String, Object> resync = new HashMap<>();
+        resync.put("channels", channelNames.size());
+        resync.put("attempts", resyncAttempts);
+        resync.put("downtime", (connectedAtNanos - droppedAtNanos) / NANOS_PER_MILLI);
+        resync.put("resubscribeTime", (now - connectedAtNanos) / NANOS_PER_MILLI);
+        droppedAtNanos = 0;
+        return resync;
+    }
+}
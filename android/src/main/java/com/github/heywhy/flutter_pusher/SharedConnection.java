@@ -0,0 +1,255 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.platform_messages.InitInstanceMessage;
+import com.pusher.client.Pusher;
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+import com.pusher.client.util.Factory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pusher client used by one or more {@link PusherInstance}s, see {@link ConnectionPool}.
+ *
+ * The socket stays open as long as one of its instances asked to connect. Every channel is
+ * owned by the instance that subscribed it, its events reach that instance only because the
+ * client calls the listeners the channel was subscribed and bound with.
+ *
+ * What belongs to the socket rather than to an instance lives here, configured by the
+ * instance that created the connection: the {@link ReconnectManager}, so a drop causes one
+ * reconnection, and the {@link ClientEventPublisher}, so the client event rate limit holds
+ * for the socket whatever the number of instances. Resync reports go to every instance.
+ *
+ * Instances joining or leaving an open socket are told of it with a state change of their own,
+ * run on an event thread of the Pusher client under the same lock as its own callbacks, so
+ * listeners see state changes on one kind of thread and never concurrently.
+ *
+ * Only called on the main thread.
+ */
+public class SharedConnection {
+
+    private final String key;
+    private final Pusher pusher;
+    private final BatchAuthorizer authorizer;
+    private final ReconnectManager reconnectManager;
+    private final ClientEventPublisher publisher;
+    private final Factory eventThread = new Factory();
+    // read on the Pusher event thread
+    private final Map<String, ConnectionEventListener> listeners = new ConcurrentHashMap<>();
+    private final Map<String, ReconnectManager.ResyncListener> resyncListeners = new ConcurrentHashMap<>();
+    private final Map<String, String> channelOwners = new ConcurrentHashMap<>();
+    private final Set<String> connectedInstances = new HashSet<>();
+    private int references = 0;
+
+    private final ReconnectManager.ResyncListener resyncListener = new ReconnectManager.ResyncListener() {
+        @Override
+        public void onResynced(Map<String, Object> resync) {
+            for (ReconnectManager.ResyncListener listener : resyncListeners.values()) {
+                listener.onResynced(resync);
+            }
+        }
+    };
+
+    private final ConnectionEventListener reconnectListener = new ConnectionEventListener() {
+        @Override
+        public void onConnectionStateChange(ConnectionStateChange change) {
+            reconnectManager.onConnectionStateChange(change);
+        }
+
+        @Override
+        public void onError(String message, String code, Exception e) {
+            // reported to the instances by their own listeners
+        }
+    };
+
+    SharedConnection(
+        String key,
+        Pusher pusher,
+        BatchAuthorizer authorizer,
+        InitInstanceMessage.InitOptions options,
+        PusherLogger log
+    ) {
+        this.key = key;
+        this.pusher = pusher;
+        this.authorizer = authorizer;
+        this.reconnectManager = createReconnectManager(options.getReconnect());
+        this.publisher = new ClientEventPublisher(
+            HandlerTaskScheduler.main(),
+            log,
+            options.getClientEvents().getMaxRate(),
+            options.getClientEvents().getMaxQueued()
+        );
+        pusher.getConnection().bind(ConnectionState.ALL, reconnectListener);
+    }
+
+    /**
+     * Key of the connection in its pool, {@code null} when it is not shared.
+     */
+    String getKey() {
+        return key;
+    }
+
+    public Pusher getPusher() {
+        return pusher;
+    }
+
+    /**
+     * Authorizer of the instance that created the connection, {@code null} without auth options.
+     */
+    public BatchAuthorizer getAuthorizer() {
+        return authorizer;
+    }
+
+    public ReconnectManager getReconnectManager() {
+        return reconnectManager;
+    }
+
+    public ClientEventPublisher getPublisher() {
+        return publisher;
+    }
+
+    void retain() {
+        references++;
+    }
+
+    /**
+     * Sends the resync reports of the connection to the instance as well.
+     */
+    void setResyncListener(String instanceId, ReconnectManager.ResyncListener listener) {
+        resyncListeners.put(instanceId, listener);
+    }
+
+    /**
+     * @return whether the connection is no longer used by any instance
+     */
+    boolean release(String instanceId) {
+        final ConnectionEventListener listener = listeners.remove(instanceId);
+        if (listener != null) {
+            pusher.getConnection().unbind(ConnectionState.ALL, listener);
+        }
+        resyncListeners.remove(instanceId);
+        connectedInstances.remove(instanceId);
+
+        final Iterator<String> owners = channelOwners.values().iterator();
+        while (owners.hasNext()) {
+            if (owners.next().equals(instanceId)) {
+                owners.remove();
+            }
+        }
+
+        references--;
+        if (connectedInstances.isEmpty()) {
+            // a reconnection still scheduled must not revive the client
+            reconnectManager.onDisconnectRequested();
+            pusher.disconnect();
+        }
+        if (references > 0) {
+            return false;
+        }
+
+        // client events queued for this client are not sent on the next one
+        publisher.shutdown();
+        eventThread.shutdownThreads();
+        return true;
+    }
+
+    /**
+     * Connects the socket unless it already is, {@code listener} replaces the previous listener
+     * of the instance.
+     */
+    void connect(String instanceId, final ConnectionEventListener listener) {
+        final ConnectionEventListener previous = listeners.put(instanceId, listener);
+        if (previous != null) {
+            pusher.getConnection().unbind(ConnectionState.ALL, previous);
+        }
+        connectedInstances.add(instanceId);
+        reconnectManager.onConnectRequested();
+
+        final ConnectionState state = pusher.getConnection().getState();
+        pusher.connect(listener, ConnectionState.ALL);
+
+        if (state == ConnectionState.CONNECTED) {
+            // opened for another instance, this one would never hear of it
+            final String id = instanceId;
+            eventThread.queueOnEventThread(new Runnable() {
+                @Override
+                public void run() {
+                    // unless it dropped or the instance left meanwhile, the listener heard of that
+                    if (listeners.get(id) == listener && pusher.getConnection().getState() == ConnectionState.CONNECTED) {
+                        listener.onConnectionStateChange(
+                            new ConnectionStateChange(ConnectionState.DISCONNECTED, ConnectionState.CONNECTED));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Disconnects the socket once no other instance needs it.
+     */
+    void disconnect(String instanceId) {
+        connectedInstances.remove(instanceId);
+        if (connectedInstances.isEmpty()) {
+            reconnectManager.onDisconnectRequested();
+            pusher.disconnect();
+            return;
+        }
+
+        // the socket stays open for the others, the instance is told it is disconnected
+        final ConnectionEventListener listener = listeners.remove(instanceId);
+        if (listener != null) {
+            pusher.getConnection().unbind(ConnectionState.ALL, listener);
+            final ConnectionState state = pusher.getConnection().getState();
+            eventThread.queueOnEventThread(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onConnectionStateChange(new ConnectionStateChange(state, ConnectionState.DISCONNECTED));
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes the instance the owner of the channel.
+     *
+     * @throws IllegalStateException when another instance of the connection owns the channel
+     */
+    void claim(String channelName, String instanceId) {
+        final String owner = channelOwners.get(channelName);
+        if (owner != null && !owner.equals(instanceId)) {
+            throw new IllegalStateException(
+                "Channel " + channelName + " is subscribed by instance " + owner + " of the shared connection");
+        }
+        channelOwners.put(channelName, instanceId);
+    }
+
+    void unclaim(String channelName, String instanceId) {
+        if (instanceId.equals(channelOwners.get(channelName))) {
+            channelOwners.remove(channelName);
+        }
+    }
+
+    private ReconnectManager createReconnectManager(InitInstanceMessage.ReconnectOption reconnect) {
+        // every channel of the socket is resubscribed, whichever instance owns it
+        if (reconnect == null) {
+            return new ReconnectManager(
+                pusher, channelOwners.keySet(), HandlerTaskScheduler.main(), resyncListener, false, 0, 0, 0);
+        }
+
+        return new ReconnectManager(
+            pusher,
+            channelOwners.keySet(),
+            HandlerTaskScheduler.main(),
+            resyncListener,
+            true,
+            reconnect.getInitialDelay(),
+            reconnect.getMaxDelay(),
+            reconnect.getMaxAttempts()
+        );
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.heywhy.flutter_pusher;
+
+/**
+ * Thread a {@link EventDispatcher} runs its work on, so the dispatch path does not depend on
+ * Android loopers directly.
+ */
+public interface TaskScheduler {
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMillis);
+
+    /**
+     * Removes the posted runs of {@code task} that did not run yet.
+     */
+    void cancel(Runnable task);
+
+    /**
+     * Removes all posted tasks that did not run yet and stops accepting new ones.
+     */
+    void shutdown();
+}
@@ -1,109 +1,226 @@
 package com.github.heywhy.flutter_pusher.listeners;
 
-import android.os.Handler;
-import android.util.Log;
-import android.os.Looper;
-
+import com.github.heywhy.flutter_pusher.EventDispatcher;
+import com.github.heywhy.flutter_pusher.EventFilter;
+import com.github.heywhy.flutter_pusher.EventGuard;
+import com.github.heywhy.flutter_pusher.EventMessage;
+import com.github.heywhy.flutter_pusher.EventRouter;
+import com.github.heywhy.flutter_pusher.PusherLogger;
+import com.github.heywhy.flutter_pusher.ReconnectManager;
+import com.google.gson.JsonElement;
 import com.pusher.client.channel.ChannelEventListener;
 import com.pusher.client.channel.PusherEvent;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.json.JSONObject;
-
-import static com.github.heywhy.flutter_pusher.FlutterPusherPlugin.TAG;
-import static com.github.heywhy.flutter_pusher.FlutterPusherPlugin.eventSink;
-
 public class EventChannelListener implements ChannelEventListener {
     static final String SUBSCRIPTION_SUCCESS_EVENT = "pusher:subscription_succeeded";
     static final String MEMBER_ADDED_EVENT = "pusher:member_added";
     static final String MEMBER_REMOVED_EVENT = "pusher:member_removed";
+    private static final int MAX_POOLED_EVENTS = 64;
+
+    protected final String instanceId;
+    protected final EventDispatcher dispatcher;
+    protected final EventRouter router;
+    private ReconnectManager reconnectManager;
+    private PusherLogger log;
+    private final ArrayDeque<PendingEvent> pendingEventPool = new ArrayDeque<>();
+
+    private final EventGuard.Sink guardSink = new EventGuard.Sink() {
+        @Override
+        public void deliver(String channel, String event, String data, long receivedAtNanos) {
+            // held events may outlive their binding
+            final EventRouter.Route route = router.getRoute(channel, event);
+            if (route != null) {
+                deliverEvent(route, channel, event, data, receivedAtNanos);
+            }
+        }
+    };
+
+    public EventChannelListener(
+        String instanceId,
+        EventDispatcher dispatcher,
+        EventRouter router,
+        ReconnectManager reconnectManager,
+        PusherLogger log
+    ) {
+        this.instanceId = instanceId;
+        this.dispatcher = dispatcher;
+        this.router = router;
+        this.reconnectManager = reconnectManager;
+        this.log = log;
+    }
 
-    private String instanceId;
-    private boolean isLoggingEnabled;
+    /**
+     * Encoding work of one event, pooled so that the hot path does not allocate a task per event.
+     */
+    private final class PendingEvent implements Runnable {
+        String channel;
+        String event;
+        String data;
+        long receivedAtNanos;
+
+        @Override
+        public void run() {
+            final String channel = this.channel;
+            final String event = this.event;
+            final String data = this.data;
+            final long receivedAtNanos = this.receivedAtNanos;
+
+            recycle(this);
+            sendEvent(channel, event, data, receivedAtNanos);
+        }
+    }
 
-    public EventChannelListener(String instanceId, boolean isLoggingEnabled) {
-        this.instanceId = instanceId;
-        this.isLoggingEnabled = isLoggingEnabled;
+    @Override
+    public void onEvent(PusherEvent pusherEvent) {
+        onEvent(pusherEvent.getChannelName(), pusherEvent.getEventName(), pusherEvent.getData());
     }
 
-    static PusherEvent toPusherEvent(String channel, String event, String userId, String data) {
-        final Map<String, Object> eventData = new HashMap<>();
+    /**
+     * Entry point for real and synthetic ({@code pusher:*}) events alike.
+     */
+    void onEvent(String channel, String event, String data) {
+        final long receivedAtNanos = System.nanoTime();
+        final EventRouter.Route route = router.getRoute(channel, event);
+
+        dispatcher.getInstanceStats().onReceived(channel, data);
 
-        eventData.put("channel", channel);
-        eventData.put("event", event);
-        eventData.put("data", data != null ? data : "");
-        if (userId != null) {
-            eventData.put("user_id", userId);
+        if (route == null) {
+            return;
         }
 
-        return new PusherEvent(eventData);
+        final PendingEvent pendingEvent = obtainPendingEvent();
+        pendingEvent.channel = channel;
+        pendingEvent.event = event;
+        pendingEvent.data = data != null ? data : "";
+        pendingEvent.receivedAtNanos = receivedAtNanos;
+        dispatcher.execute(route.getKey(), route.isConflated(), pendingEvent);
     }
 
-    @Override
-    public void onEvent(final PusherEvent pusherEvent) {
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
+    void onError(final Exception e) {
+        dispatcher.execute(new Runnable() {
             @Override
             public void run() {
-                try {
-                    final JSONObject eventStreamMessageJson = new JSONObject();
-                    final JSONObject eventJson = new JSONObject();
-                    final String channel = pusherEvent.getChannelName();
-                    final String event = pusherEvent.getEventName();
-                    final String data = pusherEvent.getData();
-
-                    eventJson.put("channel", channel);
-                    eventJson.put("event", event);
-                    eventJson.put("data", data);
-                    eventStreamMessageJson.put("isEvent", true);
-                    eventStreamMessageJson.put("event", eventJson);
-                    eventStreamMessageJson.put("instanceId", instanceId);
-
-                    eventSink.success(eventStreamMessageJson.toString());
-
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, String.format("onEvent: \nCHANNEL: %s \nEVENT: %s \nDATA: %s", channel, event, data));
-                    }
-                } catch (Exception e) {
-                    onError(e);
-                }
+                sendError(e);
             }
         });
+    }
+
+    private void sendEvent(String channel, String event, String data, long receivedAtNanos) {
+        final EventRouter.Route route = router.getRoute(channel, event);
 
+        if (route == null) {
+            return;
+        }
+        if (route.getGuard() != null) {
+            // duplicates and stale events stop here, held events come out in sequence order
+            route.getGuard().accept(channel, event, data, receivedAtNanos, guardSink);
+            return;
+        }
+        deliverEvent(route, channel, event, data, receivedAtNanos);
     }
 
-    void onError(final Exception e) {
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    JSONObject eventStreamMessageJson = new JSONObject();
-                    JSONObject connectionErrorJson = new JSONObject();
-                    connectionErrorJson.put("message", e.getMessage());
-                    connectionErrorJson.put("code", "Channel error");
-                    connectionErrorJson.put("exception", e);
-                    eventStreamMessageJson.put("connectionError", connectionErrorJson);
-                    eventStreamMessageJson.put("instanceId", instanceId);
-
-                    eventSink.success(eventStreamMessageJson.toString());
-
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, "onError : " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                } catch (Exception ex) {
-                    if (isLoggingEnabled) {
-                        Log.d(TAG, "onError exception: " + e.getMessage());
-                        ex.printStackTrace();
-                    }
+    private void deliverEvent(EventRouter.Route route, String channel, String event, String data, long receivedAtNanos) {
+        try {
+            final long start = System.nanoTime();
+
+            // parsed at most once, the delta, the filter and the parser share the tree
+            JsonElement tree = null;
+            if (route.getDelta() != null) {
+                // patches reach the document even when the filter drops what is delivered
+                final JsonElement parsed = EventFilter.parse(data);
+                tree = route.getDelta().apply(channel, parsed);
+                if (tree == null) {
+                    return;
+                }
+                if (tree != parsed) {
+                    // the document is delivered instead of the data
+                    data = null;
                 }
             }
-        });
+            if (route.getFilter() != EventFilter.ANY) {
+                if (tree == null) {
+                    tree = EventFilter.parse(data);
+                }
+                if (!route.getFilter().matches(tree)) {
+                    dispatcher.getInstanceStats().onFiltered();
+                    return;
+                }
+            }
+
+            // parsed data goes through the codec as maps and lists, Dart skips decoding it
+            Object payload = null;
+            if (route.getParser() != null) {
+                payload = tree != null ? route.getParser().parse(tree) : route.getParser().parse(data);
+            }
+            if (payload == null) {
+                payload = data != null ? data : tree.toString();
+            }
+            if (payload instanceof String) {
+                payload = dispatcher.encodeData((String) payload);
+            }
+
+            final EventMessage eventStreamMessage = dispatcher.obtainEventMessage();
+
+            eventStreamMessage.set(
+                channel, event, payload, receivedAtNanos, dispatcher.nextSequence(channel), false);
+            dispatcher.send(eventStreamMessage);
+            dispatcher.getInstanceStats().onEncoded(System.nanoTime() - start);
+
+            if (log.isEnabled(PusherLogger.Level.TRACE)) {
+                log.trace("onEvent: channel {}, event {}, data {}", channel, event, PusherLogger.truncate(data != null ? data : String.valueOf(tree)));
+            }
+        } catch (Exception e) {
+            sendError(e);
+        }
+    }
+
+    private void sendError(Exception e) {
+        try {
+            Map<String, Object> eventStreamMessage = new HashMap<>();
+            Map<String, Object> connectionError = new HashMap<>();
+            connectionError.put("message", e.getMessage());
+            connectionError.put("code", "Channel error");
+            connectionError.put("exception", e.toString());
+            eventStreamMessage.put("connectionError", connectionError);
+            eventStreamMessage.put("instanceId", instanceId);
+
+            dispatcher.send(eventStreamMessage);
+
+            log.error("onError", e);
+        } catch (Exception ex) {
+            log.error("onError exception", ex);
+        }
     }
 
     @Override
     public void onSubscriptionSucceeded(String channelName) {
-        this.onEvent(toPusherEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, null, null));
+        onSubscribed(channelName);
+        this.onEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, null);
+    }
+
+    void onSubscribed(String channelName) {
+        reconnectManager.onSubscriptionSucceeded(channelName);
+    }
+
+    private PendingEvent obtainPendingEvent() {
+        synchronized (pendingEventPool) {
+            final PendingEvent pendingEvent = pendingEventPool.poll();
+            return pendingEvent != null ? pendingEvent : new PendingEvent();
+        }
+    }
+
+    private void recycle(PendingEvent pendingEvent) {
+        pendingEvent.channel = null;
+        pendingEvent.event = null;
+        pendingEvent.data = null;
+        synchronized (pendingEventPool) {
+            if (pendingEventPool.size() < MAX_POOLED_EVENTS) {
+                pendingEventPool.push(pendingEvent);
+            }
+        }
     }
 }
@@ -1,19 +1,39 @@
 package com.github.heywhy.flutter_pusher.listeners;
 
+import com.github.heywhy.flutter_pusher.EventDispatcher;
+import com.github.heywhy.flutter_pusher.EventRouter;
+import com.github.heywhy.flutter_pusher.PresenceRoster;
+import com.github.heywhy.flutter_pusher.PusherLogger;
+import com.github.heywhy.flutter_pusher.ReconnectManager;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.pusher.client.channel.PresenceChannelEventListener;
 import com.pusher.client.channel.User;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public class PresenceChannelListener extends EventChannelListener implements PresenceChannelEventListener {
 
-    public PresenceChannelListener(String instanceId, boolean isLoggingEnabled) {
-        super(instanceId, isLoggingEnabled);
+    private final PresenceRoster roster;
+
+    public PresenceChannelListener(
+        String instanceId,
+        EventDispatcher dispatcher,
+        EventRouter router,
+        PresenceRoster roster,
+        ReconnectManager reconnectManager,
+        PusherLogger log
+    ) {
+        super(instanceId, dispatcher, router, reconnectManager, log);
+        this.roster = roster;
     }
 
     @Override
     public void onSubscriptionSucceeded(String channelName) {
-        this.onEvent(toPusherEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, null, null));
+        // reported to Dart by onUsersInformationReceived together with the roster size
+        onSubscribed(channelName);
     }
 
     @Override
@@ -23,16 +43,67 @@ public class PresenceChannelListener extends EventChannelListener implements Pre
 
     @Override
     public void onUsersInformationReceived(String channelName, Set<User> users) {
-        this.onEvent(toPusherEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, null, users.toString()));
+        if (roster.setMembers(channelName, PresenceRoster.toUsers(users))) {
+            scheduleDiff(channelName);
+        }
+
+        // the roster itself stays native, Dart pages through it on demand
+        final JsonObject data = new JsonObject();
+        data.addProperty("count", users.size());
+        this.onEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, data.toString());
     }
 
     @Override
     public void userSubscribed(String channelName, User user) {
-        this.onEvent(toPusherEvent(channelName, MEMBER_ADDED_EVENT, user.getId(), null));
+        if (roster.putMember(channelName, user.getId(), user.getInfo())) {
+            scheduleDiff(channelName);
+        }
+        // the member payload is only built for bound events
+        if (router.getRoute(channelName, MEMBER_ADDED_EVENT) != null) {
+            this.onEvent(channelName, MEMBER_ADDED_EVENT, toMemberData(user));
+        }
     }
 
     @Override
     public void userUnsubscribed(String channelName, User user) {
-        this.onEvent(toPusherEvent(channelName, MEMBER_REMOVED_EVENT, user.getId(), null));
+        if (roster.removeMember(channelName, user.getId())) {
+            scheduleDiff(channelName);
+        }
+        if (router.getRoute(channelName, MEMBER_REMOVED_EVENT) != null) {
+            this.onEvent(channelName, MEMBER_REMOVED_EVENT, toMemberData(user));
+        }
+    }
+
+    /**
+     * Queues the delivery of the pending roster diff, changes arriving until it runs are
+     * delivered with it.
+     */
+    private void scheduleDiff(final String channelName) {
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Map<String, Object> diff = roster.takeDiff(channelName);
+                if (diff == null) {
+                    return;
+                }
+
+                final Map<String, Object> eventStreamMessage = new HashMap<>();
+                eventStreamMessage.put("presenceDiff", diff);
+                eventStreamMessage.put("instanceId", instanceId);
+                dispatcher.send(eventStreamMessage);
+            }
+        });
+    }
+
+    /**
+     * Member payload in the shape of the Pusher protocol, {@code {user_id, user_info}}.
+     */
+    private static String toMemberData(User user) {
+        final JsonObject data = new JsonObject();
+        data.addProperty("user_id", user.getId());
+        if (user.getInfo() != null) {
+            data.add("user_info", new JsonParser().parse(user.getInfo()));
+        }
+        return data.toString();
     }
 }
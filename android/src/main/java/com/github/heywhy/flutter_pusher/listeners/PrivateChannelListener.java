@@ -1,16 +1,21 @@
 package com.github.heywhy.flutter_pusher.listeners;
 
+import com.github.heywhy.flutter_pusher.EventDispatcher;
+import com.github.heywhy.flutter_pusher.EventRouter;
+import com.github.heywhy.flutter_pusher.PusherLogger;
+import com.github.heywhy.flutter_pusher.ReconnectManager;
 import com.pusher.client.channel.PrivateChannelEventListener;
 
 public class PrivateChannelListener extends EventChannelListener implements PrivateChannelEventListener {
 
-    public PrivateChannelListener(String instanceId, boolean isLoggingEnabled) {
-        super(instanceId, isLoggingEnabled);
-    }
-
-    @Override
-    public void onSubscriptionSucceeded(String channelName) {
-        this.onEvent(toPusherEvent(channelName, SUBSCRIPTION_SUCCESS_EVENT, null, null));
+    public PrivateChannelListener(
+        String instanceId,
+        EventDispatcher dispatcher,
+        EventRouter router,
+        ReconnectManager reconnectManager,
+        PusherLogger log
+    ) {
+        super(instanceId, dispatcher, router, reconnectManager, log);
     }
 
     @Override
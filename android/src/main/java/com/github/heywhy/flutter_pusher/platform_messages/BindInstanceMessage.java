@@ -1,8 +1,17 @@
 package com.github.heywhy.flutter_pusher.platform_messages;
 
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.JsonAdapter;
+
 public class BindInstanceMessage extends InstanceMessage {
     private String eventName;
     private String channelName;
+    @JsonAdapter(OptionalJsonObjectAdapter.class)
+    private JsonObject filter;
+    private boolean conflate = false;
+    private JsonObject delta;
+    private JsonObject parse;
+    private JsonObject guard;
 
     public String getEventName() {
         return eventName;
@@ -19,4 +28,44 @@ public class BindInstanceMessage extends InstanceMessage {
     public void setChannelName(String channelName) {
         this.channelName = channelName;
     }
+
+    public JsonObject getFilter() {
+        return filter;
+    }
+
+    public void setFilter(JsonObject filter) {
+        this.filter = filter;
+    }
+
+    public boolean getConflate() {
+        return conflate;
+    }
+
+    public void setConflate(boolean conflate) {
+        this.conflate = conflate;
+    }
+
+    public JsonObject getDelta() {
+        return delta;
+    }
+
+    public void setDelta(JsonObject delta) {
+        this.delta = delta;
+    }
+
+    public JsonObject getParse() {
+        return parse;
+    }
+
+    public void setParse(JsonObject parse) {
+        this.parse = parse;
+    }
+
+    public JsonObject getGuard() {
+        return guard;
+    }
+
+    public void setGuard(JsonObject guard) {
+        this.guard = guard;
+    }
 }
@@ -0,0 +1,37 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkInstanceMessage extends InstanceMessage {
+    private List<ChannelSpec> channels = new ArrayList<>();
+
+    public List<ChannelSpec> getChannels() {
+        return channels;
+    }
+
+    public void setChannels(List<ChannelSpec> channels) {
+        this.channels = channels;
+    }
+
+    public static class ChannelSpec {
+        private String channelName;
+        private List<String> events = new ArrayList<>();
+
+        public String getChannelName() {
+            return channelName;
+        }
+
+        public void setChannelName(String channelName) {
+            this.channelName = channelName;
+        }
+
+        public List<String> getEvents() {
+            return events;
+        }
+
+        public void setEvents(List<String> events) {
+            this.events = events;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+public class DocumentQueryInstanceMessage extends InstanceMessage {
+    private String channelName;
+    private String path;
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public void setChannelName(String channelName) {
+        this.channelName = channelName;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
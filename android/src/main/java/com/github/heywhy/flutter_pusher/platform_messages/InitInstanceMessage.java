@@ -40,6 +40,16 @@ public class InitInstanceMessage extends InstanceMessage {
         private AuthOption auth;
         private boolean encrypted = true;
         private int activityTimeout;
+        private BatchingOption batching;
+        private BufferOption buffer;
+        private ReconnectOption reconnect;
+        private long statsInterval = 0;
+        private int binaryThreshold = 0;
+        private ClientEventsOption clientEvents = new ClientEventsOption();
+        private JournalOption journal;
+        private DedupOption dedup = new DedupOption();
+        private boolean shareConnection = false;
+        private AutoConnectOption autoConnect;
 
         public int getPort() {
             return port;
@@ -88,11 +98,257 @@ public class InitInstanceMessage extends InstanceMessage {
         public void setActivityTimeout(int activityTimeout) {
             this.activityTimeout = activityTimeout;
         }
+
+        public BatchingOption getBatching() {
+            return batching;
+        }
+
+        public void setBatching(BatchingOption batching) {
+            this.batching = batching;
+        }
+
+        public BufferOption getBuffer() {
+            return buffer;
+        }
+
+        public void setBuffer(BufferOption buffer) {
+            this.buffer = buffer;
+        }
+
+        public ReconnectOption getReconnect() {
+            return reconnect;
+        }
+
+        public void setReconnect(ReconnectOption reconnect) {
+            this.reconnect = reconnect;
+        }
+
+        public long getStatsInterval() {
+            return statsInterval;
+        }
+
+        public void setStatsInterval(long statsInterval) {
+            this.statsInterval = statsInterval;
+        }
+
+        public int getBinaryThreshold() {
+            return binaryThreshold;
+        }
+
+        public void setBinaryThreshold(int binaryThreshold) {
+            this.binaryThreshold = binaryThreshold;
+        }
+
+        public ClientEventsOption getClientEvents() {
+            return clientEvents;
+        }
+
+        public void setClientEvents(ClientEventsOption clientEvents) {
+            this.clientEvents = clientEvents;
+        }
+
+        public JournalOption getJournal() {
+            return journal;
+        }
+
+        public void setJournal(JournalOption journal) {
+            this.journal = journal;
+        }
+
+        public DedupOption getDedup() {
+            return dedup;
+        }
+
+        public void setDedup(DedupOption dedup) {
+            this.dedup = dedup;
+        }
+
+        public boolean getShareConnection() {
+            return shareConnection;
+        }
+
+        public void setShareConnection(boolean shareConnection) {
+            this.shareConnection = shareConnection;
+        }
+
+        public AutoConnectOption getAutoConnect() {
+            return autoConnect;
+        }
+
+        public void setAutoConnect(AutoConnectOption autoConnect) {
+            this.autoConnect = autoConnect;
+        }
+    }
+
+    public static class BatchingOption {
+        private int maxBatchSize = 50;
+        private long flushInterval = 16;
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public long getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(long flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+    }
+
+    public static class ReconnectOption {
+        private long initialDelay = 1000;
+        private long maxDelay = 30000;
+        private int maxAttempts = 0;
+
+        public long getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(long initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public long getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(long maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    public static class ClientEventsOption {
+        private int maxRate = 10;
+        private int maxQueued = 100;
+
+        public int getMaxRate() {
+            return maxRate;
+        }
+
+        public void setMaxRate(int maxRate) {
+            this.maxRate = maxRate;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    public static class JournalOption {
+        private long maxSize = 8 * 1024 * 1024;
+        private int segmentSize = 1024 * 1024;
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+    }
+
+    public static class DedupOption {
+        private int maxEvents = 4096;
+        private long window = 60000;
+
+        public int getMaxEvents() {
+            return maxEvents;
+        }
+
+        public void setMaxEvents(int maxEvents) {
+            this.maxEvents = maxEvents;
+        }
+
+        public long getWindow() {
+            return window;
+        }
+
+        public void setWindow(long window) {
+            this.window = window;
+        }
+    }
+
+    public static class AutoConnectOption {
+        private long idleTimeout = 30000;
+        private long backgroundTimeout = 0;
+        private boolean disconnectInBackground = true;
+
+        public long getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public long getBackgroundTimeout() {
+            return backgroundTimeout;
+        }
+
+        public void setBackgroundTimeout(long backgroundTimeout) {
+            this.backgroundTimeout = backgroundTimeout;
+        }
+
+        public boolean getDisconnectInBackground() {
+            return disconnectInBackground;
+        }
+
+        public void setDisconnectInBackground(boolean disconnectInBackground) {
+            this.disconnectInBackground = disconnectInBackground;
+        }
+    }
+
+    public static class BufferOption {
+        private int capacity = 4096;
+        private String overflowPolicy = "dropOldest";
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public String getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(String overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
     }
 
     public static class AuthOption {
         private String endpoint;
         private Map<String, String> headers = Collections.emptyMap();
+        private boolean batch = false;
 
         public String getEndpoint() {
             return endpoint;
@@ -109,5 +365,13 @@ public class InitInstanceMessage extends InstanceMessage {
         public void setHeaders(Map<String, String> headers) {
             this.headers = headers;
         }
+
+        public boolean getBatch() {
+            return batch;
+        }
+
+        public void setBatch(boolean batch) {
+            this.batch = batch;
+        }
     }
 }
@@ -0,0 +1,13 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+public class LifecycleInstanceMessage extends InstanceMessage {
+    private String state;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+public class LogLevelInstanceMessage extends InstanceMessage {
+    private String level;
+
+    public String getLevel() {
+        return level;
+    }
+
+    public void setLevel(String level) {
+        this.level = level;
+    }
+}
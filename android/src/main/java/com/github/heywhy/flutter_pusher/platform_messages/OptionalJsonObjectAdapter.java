@@ -0,0 +1,38 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads an optional {@link JsonObject} field, Dart sends unset options as {@code null}.
+ *
+ * Gson reads {@code JsonElement} fields with a built-in adapter that takes precedence over
+ * registered ones and rejects {@code null} for a {@code JsonObject}, so the fields opt in with
+ * {@code @JsonAdapter}.
+ */
+final class OptionalJsonObjectAdapter extends TypeAdapter<JsonObject> {
+
+    @Override
+    public void write(JsonWriter out, JsonObject value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            out.jsonValue(value.toString());
+        }
+    }
+
+    @Override
+    public JsonObject read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return new JsonParser().parse(in).getAsJsonObject();
+    }
+}
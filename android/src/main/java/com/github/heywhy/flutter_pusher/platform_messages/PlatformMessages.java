@@ -0,0 +1,43 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+import com.google.gson.Gson;
+
+/**
+ * Decodes the JSON arguments of a method call into its typed message in a single pass.
+ */
+public final class PlatformMessages {
+
+    private static final Gson gson = new Gson();
+
+    private PlatformMessages() {
+    }
+
+    public static InstanceMessage decode(String method, String arguments) {
+        switch (method) {
+            case "init":
+                return gson.fromJson(arguments, InitInstanceMessage.class);
+            case "subscribe":
+            case "unsubscribe":
+                return gson.fromJson(arguments, SubscriptionInstanceMessage.class);
+            case "bind":
+            case "unbind":
+                return gson.fromJson(arguments, BindInstanceMessage.class);
+            case "trigger":
+                return gson.fromJson(arguments, TriggerInstanceMessage.class);
+            case "getPresenceMembers":
+            case "getPresenceMember":
+                return gson.fromJson(arguments, PresenceQueryInstanceMessage.class);
+            case "setLogLevel":
+                return gson.fromJson(arguments, LogLevelInstanceMessage.class);
+            case "getDocument":
+                return gson.fromJson(arguments, DocumentQueryInstanceMessage.class);
+            case "setLifecycleState":
+                return gson.fromJson(arguments, LifecycleInstanceMessage.class);
+            case "subscribeAll":
+            case "bindAll":
+                return gson.fromJson(arguments, BulkInstanceMessage.class);
+            default:
+                return gson.fromJson(arguments, InstanceMessage.class);
+        }
+    }
+}
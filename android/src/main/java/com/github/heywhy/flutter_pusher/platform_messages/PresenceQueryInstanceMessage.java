@@ -0,0 +1,31 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+public class PresenceQueryInstanceMessage extends SubscriptionInstanceMessage {
+    private int offset = 0;
+    private int limit = 100;
+    private String userId;
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+}
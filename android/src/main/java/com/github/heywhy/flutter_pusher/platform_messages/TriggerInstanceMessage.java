@@ -0,0 +1,40 @@
+package com.github.heywhy.flutter_pusher.platform_messages;
+
+public class TriggerInstanceMessage extends InstanceMessage {
+    private String channelName;
+    private String eventName;
+    private String data;
+    private boolean latestWins = false;
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public void setChannelName(String channelName) {
+        this.channelName = channelName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+
+    public boolean getLatestWins() {
+        return latestWins;
+    }
+
+    public void setLatestWins(boolean latestWins) {
+        this.latestWins = latestWins;
+    }
+}
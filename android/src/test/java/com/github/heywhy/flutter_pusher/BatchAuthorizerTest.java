@@ -0,0 +1,195 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.pusher.client.util.UrlEncodedConnectionFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchAuthorizerTest {
+
+    private static final int CHANNELS = 10;
+    private static final String SOCKET_ID = "123.456";
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch release;
+    private volatile CountDownLatch received;
+    private HttpServer server;
+    private String endpoint;
+
+    /**
+     * Auth endpoint answering single requests with {@code {"auth": "<channel>"}} and batched ones
+     * with that response under each channel name.
+     */
+    private final HttpHandler handler = new HttpHandler() {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            if (received != null) {
+                received.countDown();
+            }
+            try {
+                if (release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            final String body = read(exchange.getRequestBody());
+            final String response;
+            if (body.startsWith("{")) {
+                final JsonObject responses = new JsonObject();
+                for (JsonElement name : new JsonParser().parse(body).getAsJsonObject().getAsJsonArray("channel_name")) {
+                    responses.add(name.getAsString(), signature(name.getAsString()));
+                }
+                response = responses.toString();
+            } else {
+                final String name = URLDecoder.decode(body.split("channel_name=")[1].split("&")[0], "UTF-8");
+                response = signature(name).toString();
+            }
+
+            final byte[] bytes = response.getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            final OutputStream output = exchange.getResponseBody();
+            output.write(bytes);
+            output.close();
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/auth", handler);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/auth";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void authorizesEveryChannelWithOneRequestWhenBatching() {
+        final BatchAuthorizer authorizer = createAuthorizer(true);
+
+        authorizeAll(authorizer, SOCKET_ID);
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void authorizesEachChannelWithoutBatching() {
+        final BatchAuthorizer authorizer = createAuthorizer(false);
+
+        authorizeAll(authorizer, SOCKET_ID);
+        // cached for the socket id
+        authorizeAll(authorizer, SOCKET_ID);
+
+        assertEquals(CHANNELS, requests.get());
+    }
+
+    @Test
+    public void authorizesAgainForANewSocketId() {
+        final BatchAuthorizer authorizer = createAuthorizer(true);
+
+        authorizeAll(authorizer, SOCKET_ID);
+        authorizeAll(authorizer, "789.012");
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void unregistersWhileARequestIsInFlight() throws InterruptedException {
+        final BatchAuthorizer authorizer = createAuthorizer(true);
+        for (int i = 0; i < CHANNELS; i++) {
+            authorizer.register(channelName(i));
+        }
+        release = new CountDownLatch(1);
+        received = new CountDownLatch(1);
+
+        final Thread authorizing = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                authorizer.authorize(channelName(0), SOCKET_ID);
+            }
+        });
+        authorizing.start();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        // the main thread must not wait for the request
+        final long start = System.nanoTime();
+        authorizer.unregister(channelName(1));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+        release.countDown();
+        authorizing.join(5000);
+
+        // the unregistered channel was not cached from the batch
+        authorizer.register(channelName(1));
+        assertEquals(signature(channelName(1)).toString(), authorizer.authorize(channelName(1), SOCKET_ID));
+        assertEquals(2, requests.get());
+    }
+
+    private BatchAuthorizer createAuthorizer(boolean isBatching) {
+        return new BatchAuthorizer(
+            endpoint,
+            Collections.<String, String>emptyMap(),
+            new UrlEncodedConnectionFactory(),
+            isBatching ? new JsonEncodedConnectionFactory() : null,
+            new InstanceStats()
+        );
+    }
+
+    private void authorizeAll(BatchAuthorizer authorizer, String socketId) {
+        for (int i = 0; i < CHANNELS; i++) {
+            authorizer.register(channelName(i));
+        }
+        for (int i = 0; i < CHANNELS; i++) {
+            assertEquals(signature(channelName(i)).toString(), authorizer.authorize(channelName(i), socketId));
+        }
+    }
+
+    private static String channelName(int i) {
+        return "private-channel-" + i;
+    }
+
+    private static JsonObject signature(String channelName) {
+        final JsonObject signature = new JsonObject();
+        signature.addProperty("auth", "key:" + channelName);
+        return signature;
+    }
+
+    private static String read(InputStream input) throws IOException {
+        final Reader reader = new InputStreamReader(input, "UTF-8");
+        final StringBuilder builder = new StringBuilder();
+        final char[] buffer = new char[1024];
+        int count;
+        while ((count = reader.read(buffer)) > 0) {
+            builder.append(buffer, 0, count);
+        }
+        return builder.toString();
+    }
+}
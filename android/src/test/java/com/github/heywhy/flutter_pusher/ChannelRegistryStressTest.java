@@ -0,0 +1,264 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.github.heywhy.flutter_pusher.listeners.EventChannelListener;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.pusher.client.channel.PusherEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Subscribes, unsubscribes, binds and tears the channels down on several threads while events
+ * arrive on the Pusher thread and the dispatcher delivers them, the way a reconnect storm does.
+ */
+public class ChannelRegistryStressTest {
+
+    private static final int CHANNELS = 8;
+    private static final int EVENTS = 20000;
+    private static final int MUTATORS = 2;
+    private static final long HOLD_TIMEOUT = 5;
+    private static final String[] EVENT_NAMES = {"order", "tick", "state"};
+
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private final InstanceStats stats = new InstanceStats();
+    private final EventRouter router = new EventRouter();
+    private final DeltaDocuments documents = new DeltaDocuments(new PusherLogger("0"));
+    // stands for PusherInstance.channels
+    private final ConcurrentMap<String, Boolean> channels = new ConcurrentHashMap<>();
+    private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    // written on the dispatcher thread only
+    private final Map<String, List<Long>> delivered = new HashMap<>();
+    private final List<Object> unexpected = new ArrayList<>();
+
+    private final MessageSink sink = new MessageSink() {
+        @Override
+        public boolean isListening() {
+            return true;
+        }
+
+        @Override
+        public void send(Object message) {
+            if (!(message instanceof EventMessage)) {
+                unexpected.add(message);
+                return;
+            }
+            final EventMessage event = (EventMessage) message;
+            final String key = event.getChannel() + ":" + event.getEventName();
+            List<Long> numbers = delivered.get(key);
+            if (numbers == null) {
+                numbers = new ArrayList<>();
+                delivered.put(key, numbers);
+            }
+            numbers.add(new JsonParser().parse((String) event.getData()).getAsJsonObject().get("seq").getAsLong());
+        }
+    };
+
+    private final EventDispatcher dispatcher = new EventDispatcher(
+        "0",
+        sink,
+        new EventBuffer(1 << 16, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+        stats,
+        scheduler,
+        scheduler
+    );
+    private final EventGuard guard = new EventGuard(dispatcher, stats, 1024, 60000);
+    private final EventChannelListener listener = new EventChannelListener("0", dispatcher, router, null, new PusherLogger("0"));
+
+    @Test
+    public void survivesConcurrentSubscriptionsWhileEventsArrive() throws InterruptedException {
+        final AtomicBoolean isProducing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        // the Pusher event thread, every channel sends increasing numbers, orders twice
+        threads.add(thread(start, new Runnable() {
+            @Override
+            public void run() {
+                for (long seq = 0; seq < EVENTS; seq++) {
+                    final String channel = channelName((int) (seq % CHANNELS));
+                    for (String eventName : EVENT_NAMES) {
+                        receive(channel, eventName, seq);
+                    }
+                    receive(channel, "order", seq);
+                }
+                isProducing.set(false);
+            }
+        }));
+
+        for (int i = 0; i < MUTATORS; i++) {
+            final Random random = new Random(i);
+            threads.add(thread(start, new Runnable() {
+                @Override
+                public void run() {
+                    while (isProducing.get()) {
+                        final String channel = channelName(random.nextInt(CHANNELS));
+                        switch (random.nextInt(20)) {
+                            case 0:
+                                reinit();
+                                break;
+                            case 1:
+                            case 2:
+                            case 3:
+                                unsubscribe(channel);
+                                break;
+                            case 4:
+                            case 5:
+                                router.unbind(channel, EVENT_NAMES[random.nextInt(EVENT_NAMES.length)]);
+                                break;
+                            default:
+                                subscribe(channel);
+                                bind(channel, EVENT_NAMES[random.nextInt(EVENT_NAMES.length)]);
+                                break;
+                        }
+                    }
+                }
+            }));
+        }
+
+        // the dispatcher thread, also the main thread of the sink
+        final Thread dispatcherThread = thread(start, new Runnable() {
+            @Override
+            public void run() {
+                while (isProducing.get()) {
+                    scheduler.advance(1);
+                }
+            }
+        });
+
+        start.countDown();
+        threads.add(dispatcherThread);
+        for (Thread thread : threads) {
+            thread.join(30000);
+            assertFalse("threads did not finish", thread.isAlive());
+        }
+        scheduler.advance(HOLD_TIMEOUT + 1);
+        assertEquals(Collections.<Throwable>emptyList(), errors);
+        assertEquals(Collections.emptyList(), unexpected);
+
+        assertFalse(delivered.isEmpty());
+        // duplicates and late events never reach Dart, nothing is delivered out of order
+        for (Map.Entry<String, List<Long>> entry : delivered.entrySet()) {
+            final List<Long> numbers = entry.getValue();
+            for (int i = 1; i < numbers.size(); i++) {
+                assertTrue(entry.getKey() + " delivered " + numbers.get(i) + " after " + numbers.get(i - 1),
+                    numbers.get(i) > numbers.get(i - 1));
+            }
+        }
+
+        // the registry and the listener are still consistent once the storm is over
+        delivered.clear();
+        final Set<String> expected = new HashSet<>();
+        for (int i = 0; i < CHANNELS; i++) {
+            final String channel = channelName(i);
+            subscribe(channel);
+            for (String eventName : EVENT_NAMES) {
+                bind(channel, eventName);
+                receive(channel, eventName, EVENTS);
+                expected.add(channel + ":" + eventName);
+            }
+        }
+        scheduler.advance(HOLD_TIMEOUT + 1);
+
+        assertEquals(CHANNELS, channels.size());
+        assertEquals(expected, delivered.keySet());
+        for (List<Long> numbers : delivered.values()) {
+            assertEquals(Collections.singletonList((long) EVENTS), numbers);
+        }
+    }
+
+    private Thread thread(final CountDownLatch start, final Runnable runnable) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    runnable.run();
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void receive(String channel, String eventName, long seq) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("channel", channel);
+        properties.put("event", eventName);
+        properties.put("data", "{\"id\":" + seq + ",\"seq\":" + seq + "}");
+        listener.onEvent(new PusherEvent(properties));
+    }
+
+    private void subscribe(String channel) {
+        channels.put(channel, true);
+    }
+
+    private void bind(String channel, String eventName) {
+        switch (eventName) {
+            case "order":
+                final JsonObject options = new JsonObject();
+                options.addProperty("idField", "id");
+                options.addProperty("sequenceField", "seq");
+                options.addProperty("ordering", "hold");
+                options.addProperty("holdTimeout", HOLD_TIMEOUT);
+                router.bind(channel, eventName, EventFilter.ANY, false, null, null, guard.createBinding(options));
+                break;
+            case "tick":
+                router.bind(channel, eventName, EventFilter.ANY, true, null, null, null);
+                break;
+            default:
+                final JsonObject delta = new JsonObject();
+                delta.addProperty("mode", "snapshot");
+                delta.addProperty("deliver", "document");
+                router.bind(channel, eventName, EventFilter.ANY, false, documents.createBinding(delta), null, null);
+                break;
+        }
+    }
+
+    /**
+     * What {@code PusherInstance.unsubscribe} does with the shared structures.
+     */
+    private void unsubscribe(String channel) {
+        channels.remove(channel);
+        router.remove(channel);
+        documents.remove(channel);
+        guard.remove(channel);
+    }
+
+    /**
+     * What {@code PusherInstance.init} does, removing through the iterator while others subscribe.
+     */
+    private void reinit() {
+        final Iterator<String> names = channels.keySet().iterator();
+        while (names.hasNext()) {
+            final String channel = names.next();
+            guard.remove(channel);
+            names.remove();
+        }
+        router.clear();
+        documents.clear();
+    }
+
+    private static String channelName(int index) {
+        return "private-channel-" + index;
+    }
+}
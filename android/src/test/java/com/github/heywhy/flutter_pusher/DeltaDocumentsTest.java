@@ -0,0 +1,102 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DeltaDocumentsTest {
+
+    private DeltaDocuments documents;
+
+    @Before
+    public void setUp() {
+        documents = new DeltaDocuments(new PusherLogger("0"));
+    }
+
+    @Test
+    public void appliesPatchesToTheSnapshot() {
+        final DeltaDocuments.Binding snapshot = binding("{\"mode\": \"snapshot\"}");
+        final DeltaDocuments.Binding patch = binding("{\"mode\": \"jsonPatch\", \"deliver\": \"document\"}");
+
+        apply(snapshot, "{\"items\": [\"a\", \"c\"]}");
+        final JsonElement delivered =
+            apply(patch, "[{\"op\": \"add\", \"path\": \"/items/1\", \"value\": \"b\"}]");
+
+        assertEquals(parse("{\"items\": [\"a\", \"b\", \"c\"]}"), delivered);
+        assertEquals("{\"items\":[\"a\",\"b\",\"c\"]}", documents.getDocument("orders", null));
+    }
+
+    @Test
+    public void deliversTheEventOrTheProjectedDocument() {
+        apply(binding("{\"mode\": \"snapshot\"}"), "{\"a\": {\"b\": [1, 2]}}");
+
+        final String data = "{\"a\": {\"b\": [1, 2, 3]}}";
+        final JsonElement event = parse(data);
+        assertEquals(event, binding("{\"mode\": \"mergePatch\"}").apply("orders", event));
+
+        final JsonElement projection =
+            apply(binding("{\"mode\": \"mergePatch\", \"deliver\": \"document\", \"path\": \"a.b.2\"}"), "{}");
+        assertEquals(parse("3"), projection);
+        assertEquals("[1,2,3]", documents.getDocument("orders", "a.b"));
+    }
+
+    @Test
+    public void skipsPatchesUntilTheFirstSnapshot() {
+        final DeltaDocuments.Binding patch = binding("{\"mode\": \"mergePatch\"}");
+
+        assertNull(apply(patch, "{\"a\": 1}"));
+        assertNull(documents.getDocument("orders", null));
+    }
+
+    @Test
+    public void discardsTheDocumentWhenAPatchFails() {
+        final DeltaDocuments.Binding snapshot = binding("{\"mode\": \"snapshot\"}");
+        final DeltaDocuments.Binding patch = binding("{\"mode\": \"jsonPatch\", \"deliver\": \"document\"}");
+
+        apply(snapshot, "{\"a\": 1}");
+        assertNull(apply(patch, "[{\"op\": \"remove\", \"path\": \"/b\"}]"));
+        assertNull(documents.getDocument("orders", null));
+
+        // valid patches wait for the next snapshot
+        assertNull(apply(patch, "[{\"op\": \"add\", \"path\": \"/b\", \"value\": 2}]"));
+        apply(snapshot, "{\"a\": 2}");
+        assertEquals(parse("{\"a\": 2, \"b\": 2}"), apply(patch, "[{\"op\": \"add\", \"path\": \"/b\", \"value\": 2}]"));
+    }
+
+    @Test
+    public void discardsTheDocumentOnDataThatIsNotJson() {
+        apply(binding("{\"mode\": \"snapshot\"}"), "{\"a\": 1}");
+
+        assertNull(binding("{\"mode\": \"mergePatch\"}").apply("orders", EventFilter.parse("{not json")));
+        assertNull(documents.getDocument("orders", null));
+    }
+
+    @Test
+    public void keepsTheDocumentsOfChannelsApart() {
+        final DeltaDocuments.Binding snapshot = binding("{\"mode\": \"snapshot\"}");
+
+        apply(snapshot, "{\"a\": 1}");
+        snapshot.apply("payments", parse("{\"a\": 2}"));
+        documents.remove("payments");
+
+        assertEquals("{\"a\":1}", documents.getDocument("orders", null));
+        assertNull(documents.getDocument("payments", null));
+    }
+
+    private DeltaDocuments.Binding binding(String options) {
+        return documents.createBinding(parse(options).getAsJsonObject());
+    }
+
+    private static JsonElement apply(DeltaDocuments.Binding binding, String data) {
+        return binding.apply("orders", EventFilter.parse(data));
+    }
+
+    private static JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventGuardTest {
+
+    private final List<Object> delivered = new ArrayList<>();
+    private ManualTaskScheduler scheduler;
+    private InstanceStats stats;
+    private EventDispatcher dispatcher;
+    private EventGuard guard;
+
+    private final MessageSink messageSink = new MessageSink() {
+        @Override
+        public boolean isListening() {
+            return true;
+        }
+
+        @Override
+        public void send(Object message) {
+            delivered.add(message);
+        }
+    };
+
+    private final EventGuard.Sink guardSink = new EventGuard.Sink() {
+        @Override
+        public void deliver(String channel, String event, String data, long receivedAtNanos) {
+            dispatcher.send(channel + ":" + data);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualTaskScheduler();
+        stats = new InstanceStats();
+        dispatcher = new EventDispatcher(
+            "0",
+            messageSink,
+            new EventBuffer(64, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+            stats,
+            scheduler,
+            scheduler
+        );
+        guard = new EventGuard(dispatcher, stats, 16, 60000);
+    }
+
+    @Test
+    public void dropsDuplicatedEvents() {
+        final EventGuard.Binding binding = binding("{\"idField\": \"meta.id\"}");
+
+        receive(binding, "orders", "{\"meta\": {\"id\": \"a\"}}");
+        receive(binding, "orders", "{\"meta\": {\"id\": \"b\"}}");
+        receive(binding, "orders", "{\"meta\": {\"id\": \"a\"}}");
+        // same id on another channel is another event
+        receive(binding, "payments", "{\"meta\": {\"id\": \"a\"}}");
+
+        assertDelivered(
+            "orders:{\"meta\": {\"id\": \"a\"}}",
+            "orders:{\"meta\": {\"id\": \"b\"}}",
+            "payments:{\"meta\": {\"id\": \"a\"}}"
+        );
+        assertEquals(1L, stats.snapshot().get("eventsDuplicated"));
+    }
+
+    @Test
+    public void remembersMoreThanOneGeneration() {
+        final EventGuard.Binding binding = binding("{\"idField\": \"id\"}");
+
+        for (int i = 0; i < 20; i++) {
+            receive(binding, "orders", "{\"id\": " + i + "}");
+        }
+        // the first generation of 16 hashes was rotated out of the current one
+        receive(binding, "orders", "{\"id\": 0}");
+
+        assertEquals(20, delivered.size());
+        assertEquals(1L, stats.snapshot().get("eventsDuplicated"));
+    }
+
+    @Test
+    public void dropsEventsOutOfOrder() {
+        final EventGuard.Binding binding = binding("{\"sequenceField\": \"seq\"}");
+
+        receive(binding, "orders", "{\"seq\": 1}");
+        receive(binding, "orders", "{\"seq\": 3}");
+        receive(binding, "orders", "{\"seq\": 2}");
+        receive(binding, "orders", "{\"seq\": 3}");
+        receive(binding, "orders", "{\"seq\": 4}");
+
+        assertDelivered("orders:{\"seq\": 1}", "orders:{\"seq\": 3}", "orders:{\"seq\": 4}");
+        assertEquals(2L, stats.snapshot().get("eventsOutOfOrder"));
+    }
+
+    @Test
+    public void deliversEventsWithoutSequenceAsTheyCome() {
+        final EventGuard.Binding binding = binding("{\"sequenceField\": \"seq\", \"ordering\": \"hold\"}");
+
+        receive(binding, "orders", "{\"seq\": 1}");
+        receive(binding, "orders", "{\"seq\": \"x\"}");
+        receive(binding, "orders", "plain");
+
+        assertDelivered("orders:{\"seq\": 1}", "orders:{\"seq\": \"x\"}", "orders:plain");
+    }
+
+    @Test
+    public void holdsEventsUntilTheGapIsFilled() {
+        final EventGuard.Binding binding = binding("{\"sequenceField\": \"seq\", \"ordering\": \"hold\"}");
+
+        receive(binding, "orders", "{\"seq\": 1}");
+        receive(binding, "orders", "{\"seq\": 3}");
+        receive(binding, "orders", "{\"seq\": 4}");
+        assertDelivered("orders:{\"seq\": 1}");
+
+        receive(binding, "orders", "{\"seq\": 2}");
+        assertDelivered(
+            "orders:{\"seq\": 1}",
+            "orders:{\"seq\": 2}",
+            "orders:{\"seq\": 3}",
+            "orders:{\"seq\": 4}"
+        );
+
+        // the hold timeout was cancelled with the gap filled
+        scheduler.advance(1000);
+        assertEquals(4, delivered.size());
+    }
+
+    @Test
+    public void deliversHeldEventsAfterHoldTimeoutWhenTheGapNeverFills() {
+        final EventGuard.Binding binding =
+            binding("{\"sequenceField\": \"seq\", \"ordering\": \"hold\", \"holdTimeout\": 500}");
+
+        receive(binding, "orders", "{\"seq\": 1}");
+        receive(binding, "orders", "{\"seq\": 4}");
+        receive(binding, "orders", "{\"seq\": 3}");
+        assertDelivered("orders:{\"seq\": 1}");
+
+        scheduler.advance(499);
+        assertDelivered("orders:{\"seq\": 1}");
+
+        // no other event arrives, the release alone reaches the sink
+        scheduler.advance(1);
+        assertDelivered("orders:{\"seq\": 1}", "orders:{\"seq\": 3}", "orders:{\"seq\": 4}");
+
+        // the gap was given up
+        receive(binding, "orders", "{\"seq\": 2}");
+        receive(binding, "orders", "{\"seq\": 5}");
+        assertDelivered(
+            "orders:{\"seq\": 1}",
+            "orders:{\"seq\": 3}",
+            "orders:{\"seq\": 4}",
+            "orders:{\"seq\": 5}"
+        );
+    }
+
+    @Test
+    public void removingTheChannelDropsItsHeldEvents() {
+        final EventGuard.Binding binding =
+            binding("{\"sequenceField\": \"seq\", \"ordering\": \"hold\", \"holdTimeout\": 500}");
+
+        receive(binding, "orders", "{\"seq\": 1}");
+        receive(binding, "orders", "{\"seq\": 3}");
+        guard.remove("orders");
+        scheduler.advance(1000);
+
+        // a new subscription starts a new sequence
+        receive(binding, "orders", "{\"seq\": 1}");
+        assertDelivered("orders:{\"seq\": 1}", "orders:{\"seq\": 1}");
+    }
+
+    private EventGuard.Binding binding(String options) {
+        return guard.createBinding(new JsonParser().parse(options).getAsJsonObject());
+    }
+
+    private void receive(final EventGuard.Binding binding, final String channel, final String data) {
+        dispatcher.execute(channel, false, new Runnable() {
+            @Override
+            public void run() {
+                binding.accept(channel, "update", data, System.nanoTime(), guardSink);
+            }
+        });
+        scheduler.runDue();
+    }
+
+    private void assertDelivered(Object... messages) {
+        assertEquals(Arrays.asList(messages), delivered);
+    }
+}
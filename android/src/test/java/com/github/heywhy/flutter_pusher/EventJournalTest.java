@@ -0,0 +1,240 @@
+package com.github.heywhy.flutter_pusher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventJournalTest {
+
+    private static final String IDENTITY = "[\"key\",\"eu\",null,0,\"https://example.com/auth\",{\"Authorization\":\"Bearer a\"}]";
+    private static final String OTHER_IDENTITY = "[\"key\",\"eu\",null,0,\"https://example.com/auth\",{\"Authorization\":\"Bearer b\"}]";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> delivered = new ArrayList<>();
+    private final List<EventJournal> journals = new ArrayList<>();
+    private final EventRouter router = new EventRouter();
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private boolean isListening = false;
+    private File root;
+
+    private final MessageSink sink = new MessageSink() {
+        @Override
+        public boolean isListening() {
+            return isListening;
+        }
+
+        @Override
+        public void send(Object message) {
+            if (!(message instanceof EventMessage)) {
+                delivered.add(String.valueOf(message));
+                return;
+            }
+            final EventMessage event = (EventMessage) message;
+            final boolean isReplayed = ((Map<?, ?>) event.get("event")).containsKey("replayed");
+            delivered.add(event.getChannel() + ":" + event.getEventName() + ":" + event.getData()
+                + (isReplayed ? " (replayed)" : ""));
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("pusher-journal");
+        router.bind("private-orders", "created", EventFilter.ANY, false, null, null, null);
+        router.bind("private-orders", "deleted", EventFilter.ANY, false, null, null, null);
+    }
+
+    @After
+    public void tearDown() {
+        for (EventJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void replaysJournaledEventsOnceListened() throws IOException {
+        final EventDispatcher dispatcher = createDispatcher(open(IDENTITY));
+
+        receive(dispatcher, "created", "1");
+        receive(dispatcher, "deleted", "2");
+        assertTrue(delivered.isEmpty());
+
+        listen(dispatcher);
+        assertEquals(Arrays.asList(
+            "private-orders:created:1 (replayed)",
+            "private-orders:deleted:2 (replayed)"
+        ), delivered);
+    }
+
+    @Test
+    public void skipsReplayedEventsWhoseBindingIsGone() throws IOException {
+        final EventJournal journal = open(IDENTITY);
+        final EventDispatcher dispatcher = createDispatcher(journal);
+
+        receive(dispatcher, "created", "1");
+        receive(dispatcher, "deleted", "2");
+        receive(dispatcher, "deleted", "3");
+        router.unbind("private-orders", "deleted");
+
+        listen(dispatcher);
+        assertEquals(Arrays.asList("private-orders:created:1 (replayed)"), delivered);
+        assertFalse(journal.hasEvents());
+        assertEquals(2L, journal.getStats().get("skippedEvents"));
+
+        // live events are not held back behind the skipped ones
+        receive(dispatcher, "created", "4");
+        assertEquals("private-orders:created:4", delivered.get(delivered.size() - 1));
+    }
+
+    @Test
+    public void skipsAJournalOfOnlyUnboundEvents() throws IOException {
+        final EventJournal journal = open(IDENTITY);
+        final EventDispatcher dispatcher = createDispatcher(journal);
+
+        receive(dispatcher, "deleted", "1");
+        router.unbind("private-orders", "deleted");
+
+        listen(dispatcher);
+        receive(dispatcher, "created", "2");
+        assertEquals(Arrays.asList("private-orders:created:2"), delivered);
+        assertFalse(journal.hasEvents());
+    }
+
+    @Test
+    public void holdsMessagesTheJournalDoesNotCoverBehindTheReplay() throws IOException {
+        final EventDispatcher dispatcher = createDispatcher(open(IDENTITY));
+        receive(dispatcher, "created", "1");
+        receive(dispatcher, "deleted", "2");
+
+        // arrive once Dart listens, before the replay starts
+        isListening = true;
+        receive(dispatcher, "public-prices", "updated", "3");
+        final Map<String, Object> connection = new HashMap<>();
+        connection.put("currentState", "CONNECTED");
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                dispatcher.send(connection);
+            }
+        });
+        scheduler.runDue();
+        assertTrue(delivered.isEmpty());
+
+        listen(dispatcher);
+        assertEquals(Arrays.asList(
+            "private-orders:created:1 (replayed)",
+            "private-orders:deleted:2 (replayed)",
+            "public-prices:updated:3",
+            "{currentState=CONNECTED}"
+        ), delivered);
+    }
+
+    @Test
+    public void recoversTheJournalOfTheSameIdentity() throws IOException {
+        final EventJournal journal = open(IDENTITY);
+        receive(createDispatcher(journal), "created", "1");
+        journal.close();
+
+        assertTrue(open(IDENTITY).hasEvents());
+    }
+
+    @Test
+    public void doesNotReplayTheJournalOfAnotherIdentity() throws IOException {
+        final EventJournal journal = open(IDENTITY);
+        receive(createDispatcher(journal), "created", "1");
+        journal.close();
+
+        assertFalse(open(OTHER_IDENTITY).hasEvents());
+        // still there for its own identity
+        assertTrue(open(IDENTITY).hasEvents());
+    }
+
+    @Test
+    public void discardsAJournalWrittenForAnotherIdentity() throws IOException {
+        final EventJournal journal = open(IDENTITY);
+        receive(createDispatcher(journal), "created", "1");
+        journal.close();
+
+        // as if two identities hashed to the same directory
+        final File[] directories = root.listFiles();
+        assertEquals(1, directories.length);
+        final FileOutputStream output = new FileOutputStream(new File(directories[0], "identity"));
+        output.write(OTHER_IDENTITY.getBytes("UTF-8"));
+        output.close();
+
+        assertFalse(open(IDENTITY).hasEvents());
+    }
+
+    @Test
+    public void givesInstancesOfTheSameIdentityAJournalEach() throws IOException {
+        final EventJournal first = open(IDENTITY);
+        final EventJournal second = open(IDENTITY);
+        receive(createDispatcher(first), "created", "1");
+
+        assertNotEquals(first, second);
+        assertEquals(2, root.listFiles().length);
+        assertFalse(second.hasEvents());
+    }
+
+    private EventJournal open(String identity) throws IOException {
+        final EventJournal journal = EventJournal.open(root, identity, router, 1024 * 1024, 64 * 1024, new PusherLogger("0"));
+        journals.add(journal);
+        return journal;
+    }
+
+    private EventDispatcher createDispatcher(EventJournal journal) {
+        final InstanceStats stats = new InstanceStats();
+        return new EventDispatcher(
+            "0",
+            sink,
+            new EventBuffer(64, EventBuffer.OverflowPolicy.DROP_OLDEST, stats),
+            stats,
+            scheduler,
+            scheduler,
+            false,
+            1,
+            0,
+            0,
+            journal
+        );
+    }
+
+    private void receive(EventDispatcher dispatcher, String event, String data) {
+        receive(dispatcher, "private-orders", event, data);
+    }
+
+    private void receive(final EventDispatcher dispatcher, final String channel, final String event, final String data) {
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                final EventMessage message = dispatcher.obtainEventMessage();
+                message.set(channel, event, data, System.nanoTime(), dispatcher.nextSequence(channel), false);
+                dispatcher.send(message);
+            }
+        });
+        scheduler.runDue();
+    }
+
+    private void listen(EventDispatcher dispatcher) {
+        isListening = true;
+        dispatcher.replay();
+        scheduler.runDue();
+    }
+}
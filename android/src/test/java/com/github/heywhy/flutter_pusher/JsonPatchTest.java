@@ -0,0 +1,177 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The examples of RFC 6902, appendix A, and of RFC 7396, appendix A.
+ */
+public class JsonPatchTest {
+
+    @Test
+    public void addsAnObjectMember() {
+        assertPatched("{\"baz\": \"qux\", \"foo\": \"bar\"}",
+            "[{\"op\": \"add\", \"path\": \"/baz\", \"value\": \"qux\"}]",
+            "{\"foo\": \"bar\"}");
+    }
+
+    @Test
+    public void addsAnArrayElementShiftingTheTail() {
+        assertPatched("{\"foo\": [\"bar\", \"qux\", \"baz\"]}",
+            "[{\"op\": \"add\", \"path\": \"/foo/1\", \"value\": \"qux\"}]",
+            "{\"foo\": [\"bar\", \"baz\"]}");
+        assertPatched("[0, 1, 2, 3]",
+            "[{\"op\": \"add\", \"path\": \"/0\", \"value\": 0}]",
+            "[1, 2, 3]");
+    }
+
+    @Test
+    public void removesAnObjectMember() {
+        assertPatched("{\"foo\": \"bar\"}",
+            "[{\"op\": \"remove\", \"path\": \"/baz\"}]",
+            "{\"baz\": \"qux\", \"foo\": \"bar\"}");
+    }
+
+    @Test
+    public void removesAnArrayElement() {
+        assertPatched("{\"foo\": [\"bar\", \"baz\"]}",
+            "[{\"op\": \"remove\", \"path\": \"/foo/1\"}]",
+            "{\"foo\": [\"bar\", \"qux\", \"baz\"]}");
+    }
+
+    @Test
+    public void replacesAValue() {
+        assertPatched("{\"baz\": \"boo\", \"foo\": \"bar\"}",
+            "[{\"op\": \"replace\", \"path\": \"/baz\", \"value\": \"boo\"}]",
+            "{\"baz\": \"qux\", \"foo\": \"bar\"}");
+        assertPatched("{\"new\": true}",
+            "[{\"op\": \"replace\", \"path\": \"\", \"value\": {\"new\": true}}]",
+            "{\"old\": true}");
+    }
+
+    @Test
+    public void movesAValue() {
+        assertPatched(
+            "{\"foo\": {\"bar\": \"baz\"}, \"qux\": {\"corge\": \"grault\", \"thud\": \"fred\"}}",
+            "[{\"op\": \"move\", \"from\": \"/foo/waldo\", \"path\": \"/qux/thud\"}]",
+            "{\"foo\": {\"bar\": \"baz\", \"waldo\": \"fred\"}, \"qux\": {\"corge\": \"grault\"}}");
+    }
+
+    @Test
+    public void movesAnArrayElement() {
+        assertPatched("{\"foo\": [\"all\", \"cows\", \"eat\", \"grass\"]}",
+            "[{\"op\": \"move\", \"from\": \"/foo/1\", \"path\": \"/foo/3\"}]",
+            "{\"foo\": [\"all\", \"grass\", \"cows\", \"eat\"]}");
+    }
+
+    @Test
+    public void copiesAValue() {
+        final JsonElement patched = apply(
+            "[{\"op\": \"copy\", \"from\": \"/a\", \"path\": \"/b\"}, {\"op\": \"add\", \"path\": \"/a/x\", \"value\": 2}]",
+            "{\"a\": {\"x\": 1}}");
+
+        // the copy does not share its members with the original
+        assertEquals(parse("{\"a\": {\"x\": 2}, \"b\": {\"x\": 1}}"), patched);
+    }
+
+    @Test
+    public void testsAValue() {
+        assertPatched("{\"baz\": \"qux\", \"foo\": [\"a\", 2, \"c\"]}",
+            "[{\"op\": \"test\", \"path\": \"/baz\", \"value\": \"qux\"},"
+                + " {\"op\": \"test\", \"path\": \"/foo/1\", \"value\": 2}]",
+            "{\"baz\": \"qux\", \"foo\": [\"a\", 2, \"c\"]}");
+        assertFails("[{\"op\": \"test\", \"path\": \"/baz\", \"value\": \"bar\"}]", "{\"baz\": \"qux\"}");
+    }
+
+    @Test
+    public void addsANestedMember() {
+        assertPatched("{\"foo\": \"bar\", \"child\": {\"grandchild\": {}}}",
+            "[{\"op\": \"add\", \"path\": \"/child\", \"value\": {\"grandchild\": {}}}]",
+            "{\"foo\": \"bar\"}");
+    }
+
+    @Test
+    public void ignoresUnrecognizedMembers() {
+        assertPatched("{\"foo\": \"bar\", \"baz\": \"qux\"}",
+            "[{\"op\": \"add\", \"path\": \"/baz\", \"value\": \"qux\", \"xyz\": 123}]",
+            "{\"foo\": \"bar\"}");
+    }
+
+    @Test
+    public void failsToAddToANonexistentTarget() {
+        assertFails("[{\"op\": \"add\", \"path\": \"/baz/bat\", \"value\": \"qux\"}]", "{\"foo\": \"bar\"}");
+    }
+
+    @Test
+    public void unescapesPointers() {
+        assertPatched("{\"/\": 9, \"~1\": 10}",
+            "[{\"op\": \"test\", \"path\": \"/~01\", \"value\": 10}]",
+            "{\"/\": 9, \"~1\": 10}");
+        assertPatched("{\"a/b\": 1, \"m~n\": 2}",
+            "[{\"op\": \"add\", \"path\": \"/a~1b\", \"value\": 1},"
+                + " {\"op\": \"add\", \"path\": \"/m~0n\", \"value\": 2}]",
+            "{}");
+    }
+
+    @Test
+    public void comparesStringsAndNumbers() {
+        assertFails("[{\"op\": \"test\", \"path\": \"/~01\", \"value\": \"10\"}]", "{\"/\": 9, \"~1\": 10}");
+    }
+
+    @Test
+    public void appendsAnArrayValue() {
+        assertPatched("{\"foo\": [\"bar\", [\"abc\", \"def\"]]}",
+            "[{\"op\": \"add\", \"path\": \"/foo/-\", \"value\": [\"abc\", \"def\"]}]",
+            "{\"foo\": [\"bar\"]}");
+    }
+
+    @Test
+    public void failsOnInvalidOperations() {
+        assertFails("[{\"op\": \"remove\", \"path\": \"/missing\"}]", "{}");
+        assertFails("[{\"op\": \"add\", \"path\": \"/foo/3\", \"value\": 1}]", "{\"foo\": [1]}");
+        assertFails("[{\"op\": \"add\", \"path\": \"/foo\"}]", "{}");
+        assertFails("[{\"op\": \"frobnicate\", \"path\": \"/foo\"}]", "{}");
+    }
+
+    @Test
+    public void mergesPatches() {
+        assertMerged("{\"a\": \"z\", \"c\": {\"d\": \"e\"}}",
+            "{\"a\": \"z\", \"c\": {\"f\": null}}",
+            "{\"a\": \"b\", \"c\": {\"d\": \"e\", \"f\": \"g\"}}");
+        assertMerged("{\"a\": \"c\"}", "{\"a\": \"c\"}", "{\"a\": \"b\"}");
+        assertMerged("{}", "{\"a\": null}", "{\"a\": \"b\"}");
+        assertMerged("{\"a\": [1]}", "{\"a\": [1]}", "{\"a\": [{\"b\": \"c\"}]}");
+        assertMerged("[\"c\", \"d\"]", "[\"c\", \"d\"]", "{\"a\": \"b\"}");
+        assertMerged("{\"a\": {\"bb\": {}}}", "{\"a\": {\"bb\": {\"ccc\": null}}}", "{}");
+    }
+
+    private static void assertPatched(String expected, String patch, String document) {
+        assertEquals(parse(expected), apply(patch, document));
+    }
+
+    private static void assertFails(String patch, String document) {
+        try {
+            apply(patch, document);
+            fail("Patch applied: " + patch);
+        } catch (IllegalArgumentException | IllegalStateException expected) {
+            // the caller discards the document
+        }
+    }
+
+    private static void assertMerged(String expected, String patch, String document) {
+        assertEquals(parse(expected), JsonPatch.merge(parse(document), parse(patch)));
+    }
+
+    private static JsonElement apply(String patch, String document) {
+        return JsonPatch.apply(parse(document), parse(patch).getAsJsonArray());
+    }
+
+    private static JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+}
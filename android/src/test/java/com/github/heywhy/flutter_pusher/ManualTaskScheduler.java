@@ -0,0 +1,121 @@
+package com.github.heywhy.flutter_pusher;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * {@link TaskScheduler} on a virtual clock, its tasks run on the calling thread when asked to,
+ * so that code built on schedulers can be driven deterministically on the JVM.
+ *
+ * Tasks may be posted from any thread.
+ */
+public class ManualTaskScheduler implements TaskScheduler {
+
+    private static class Task implements Comparable<Task> {
+        final Runnable runnable;
+        final long dueAt;
+        final long order;
+
+        Task(Runnable runnable, long dueAt, long order) {
+            this.runnable = runnable;
+            this.dueAt = dueAt;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (dueAt != other.dueAt) {
+                return dueAt < other.dueAt ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now = 0;
+    private long order = 0;
+    private boolean isShutdown = false;
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMillis) {
+        if (!isShutdown) {
+            tasks.add(new Task(task, now + Math.max(0, delayMillis), order++));
+        }
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        final Iterator<Task> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().runnable == task) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        isShutdown = true;
+        tasks.clear();
+    }
+
+    /**
+     * Runs the tasks that are due, including those they post in turn.
+     *
+     * @return the number of tasks run
+     */
+    public int runDue() {
+        int count = 0;
+        Runnable task;
+        while ((task = pollDue()) != null) {
+            task.run();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Moves the clock forward by {@code millis}, running the tasks in the order they fall due.
+     */
+    public void advance(long millis) {
+        final long until;
+        synchronized (this) {
+            until = now + millis;
+        }
+
+        while (true) {
+            final Task next;
+            synchronized (this) {
+                next = tasks.peek();
+                if (next == null || next.dueAt > until) {
+                    now = until;
+                    break;
+                }
+                now = Math.max(now, next.dueAt);
+            }
+            runDue();
+        }
+        runDue();
+    }
+
+    public synchronized long now() {
+        return now;
+    }
+
+    public synchronized int size() {
+        return tasks.size();
+    }
+
+    private synchronized Runnable pollDue() {
+        final Task next = tasks.peek();
+        if (next == null || next.dueAt > now) {
+            return null;
+        }
+        return tasks.poll().runnable;
+    }
+}
@@ -0,0 +1,299 @@
+package com.github.heywhy.flutter_pusher;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.pusher.client.Pusher;
+import com.pusher.client.PusherOptions;
+import com.pusher.client.channel.ChannelEventListener;
+import com.pusher.client.channel.PusherEvent;
+import com.pusher.client.connection.ConnectionEventListener;
+import com.pusher.client.connection.ConnectionState;
+import com.pusher.client.connection.ConnectionStateChange;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drops the connection of a Pusher client to a local WebSocket stand-in and measures how long
+ * the managed reconnection takes to have every channel subscribed again.
+ */
+public class ReconnectManagerTest {
+
+    private static final int CHANNELS = 10;
+    private static final int DROPS = 30;
+    private static final long INITIAL_DELAY = 20;
+    private static final long MAX_DELAY = 200;
+    private static final long MAX_RECOVERY = 1000;
+
+    /**
+     * Speaks just enough of the Pusher protocol: connections are established, public channels
+     * subscribed, pings answered. The first {@code refusals} connections are closed on open.
+     */
+    private static class StandInServer extends WebSocketServer {
+        final AtomicInteger refusals = new AtomicInteger();
+        final AtomicInteger connections = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+
+        StandInServer() {
+            super(new InetSocketAddress("127.0.0.1", 0));
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            if (refusals.getAndDecrement() > 0) {
+                conn.close();
+                return;
+            }
+            refusals.set(0);
+            connections.incrementAndGet();
+            send(conn, "pusher:connection_established", null,
+                "{\"socket_id\":\"" + connections.get() + ".1\",\"activity_timeout\":120}");
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            final JsonObject json = new JsonParser().parse(message).getAsJsonObject();
+            final String event = json.get("event").getAsString();
+            if ("pusher:subscribe".equals(event)) {
+                final String channel = json.getAsJsonObject("data").get("channel").getAsString();
+                send(conn, "pusher_internal:subscription_succeeded", channel, "{}");
+            } else if ("pusher:ping".equals(event)) {
+                send(conn, "pusher:pong", null, "{}");
+            }
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        /**
+         * Closes every connection without a close handshake, as a network drop does.
+         */
+        void drop() {
+            for (WebSocket conn : getConnections()) {
+                conn.closeConnection(1006, "dropped");
+            }
+        }
+
+        private static void send(WebSocket conn, String event, String channel, String data) {
+            final JsonObject message = new JsonObject();
+            message.addProperty("event", event);
+            if (channel != null) {
+                message.addProperty("channel", channel);
+            }
+            message.addProperty("data", data);
+            conn.send(message.toString());
+        }
+    }
+
+    /**
+     * {@link TaskScheduler} on a thread of its own, standing in for the main looper.
+     */
+    private static class ExecutorTaskScheduler implements TaskScheduler {
+        private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        private final Map<Runnable, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+
+        @Override
+        public void post(Runnable task) {
+            postDelayed(task, 0);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            scheduled.put(task, executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            final ScheduledFuture<?> future = scheduled.remove(task);
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+    private final BlockingQueue<Map<String, Object>> resyncs = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ConnectionStateChange> disconnects = new LinkedBlockingQueue<>();
+    private final Set<String> channelNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler();
+    private StandInServer server;
+    private Pusher pusher;
+    private ReconnectManager manager;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        server = new StandInServer();
+        server.start();
+        // the port is -1 until the server is bound
+        assertTrue("server did not start", server.started.await(10, TimeUnit.SECONDS));
+
+        final PusherOptions options = new PusherOptions()
+            .setHost("127.0.0.1")
+            .setWsPort(server.getPort())
+            .setEncrypted(false)
+            // managed reconnection replaces the one of the client
+            .setMaxReconnectionAttempts(0);
+        pusher = new Pusher("key", options);
+        manager = new ReconnectManager(
+            pusher,
+            channelNames,
+            scheduler,
+            new ReconnectManager.ResyncListener() {
+                @Override
+                public void onResynced(Map<String, Object> resync) {
+                    resyncs.add(resync);
+                }
+            },
+            true,
+            INITIAL_DELAY,
+            MAX_DELAY,
+            0
+        );
+
+        final CountDownLatch subscribed = new CountDownLatch(CHANNELS);
+        final ChannelEventListener listener = new ChannelEventListener() {
+            @Override
+            public void onSubscriptionSucceeded(String channelName) {
+                manager.onSubscriptionSucceeded(channelName);
+                subscribed.countDown();
+            }
+
+            @Override
+            public void onEvent(PusherEvent event) {
+            }
+        };
+        for (int i = 0; i < CHANNELS; i++) {
+            final String channelName = "channel-" + i;
+            channelNames.add(channelName);
+            pusher.subscribe(channelName, listener);
+        }
+
+        manager.onConnectRequested();
+        pusher.connect(new ConnectionEventListener() {
+            @Override
+            public void onConnectionStateChange(ConnectionStateChange change) {
+                manager.onConnectionStateChange(change);
+                if (change.getCurrentState() == ConnectionState.DISCONNECTED) {
+                    disconnects.add(change);
+                }
+            }
+
+            @Override
+            public void onError(String message, String code, Exception e) {
+            }
+        }, ConnectionState.ALL);
+        assertTrue("channels were not subscribed", subscribed.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        manager.onDisconnectRequested();
+        pusher.disconnect();
+        scheduler.shutdown();
+        server.stop(1000);
+    }
+
+    @Test
+    public void resyncsEveryChannelAfterEachDrop() throws InterruptedException {
+        final List<Long> latencies = new ArrayList<>();
+
+        for (int i = 0; i < DROPS; i++) {
+            final long droppedAtNanos = drop();
+
+            final Map<String, Object> resync = resyncs.poll(10, TimeUnit.SECONDS);
+            assertNotNull("no resync after drop " + i, resync);
+            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - droppedAtNanos));
+            assertEquals(CHANNELS, resync.get("channels"));
+            assertEquals(1, resync.get("attempts"));
+        }
+
+        Collections.sort(latencies);
+        // the first retry waits between half of the initial delay and the initial delay, the
+        // rest is the handshake and the resubscriptions on the loopback
+        assertTrue(latencies.get(0) >= INITIAL_DELAY / 2);
+        assertTrue("p90 " + percentile(latencies, 90), percentile(latencies, 90) < MAX_RECOVERY);
+        assertTrue("max " + latencies.get(DROPS - 1), latencies.get(DROPS - 1) < 2 * MAX_RECOVERY);
+        assertEquals(DROPS + 1, server.connections.get());
+    }
+
+    @Test
+    public void backsOffWhileConnectionsAreRefused() throws InterruptedException {
+        final int refusals = 3;
+        server.refusals.set(refusals);
+        drop();
+
+        final Map<String, Object> resync = resyncs.poll(10, TimeUnit.SECONDS);
+        assertNotNull(resync);
+        assertEquals(CHANNELS, resync.get("channels"));
+        assertEquals(refusals + 1, resync.get("attempts"));
+
+        // 10-20, 20-40, 40-80 and 80-160 ms of equal jitter
+        long minimum = 0;
+        for (int attempt = 0; attempt <= refusals; attempt++) {
+            minimum += Math.min(MAX_DELAY, INITIAL_DELAY << attempt) / 2;
+        }
+        assertTrue((Long) resync.get("downtime") >= minimum);
+    }
+
+    /**
+     * Drops the connection until the client notices, a close from outside the selector thread of
+     * the stand-in is now and then not picked up.
+     *
+     * @return when the drop the client noticed happened, in nanoseconds
+     */
+    private long drop() throws InterruptedException {
+        disconnects.clear();
+        for (int attempt = 0; attempt < 5; attempt++) {
+            final long droppedAtNanos = System.nanoTime();
+            server.drop();
+            if (disconnects.poll(2, TimeUnit.SECONDS) != null) {
+                return droppedAtNanos;
+            }
+        }
+        throw new AssertionError("the client did not notice the drop");
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
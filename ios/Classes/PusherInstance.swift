@@ -7,9 +7,13 @@ public class PusherInstance: PusherDelegate {
     public var isLoggingEnabled: Bool = false;
     public var bindedEvents = [String:String]()
     public var channels = [String:PusherChannel]()
+    let streamHandler = StreamHandler()
 
-    init(instanceId: String) {
+    init(instanceId: String, messenger: FlutterBinaryMessenger) {
         self.instanceId = instanceId
+
+        let eventChannel = FlutterEventChannel(name: "com.github.heywhy/pusherStream/\(instanceId)", binaryMessenger: messenger)
+        eventChannel.setStreamHandler(streamHandler)
     }
 
     public func handle(call: FlutterMethodCall, result: @escaping FlutterResult) {
@@ -187,7 +191,7 @@ public class PusherInstance: PusherDelegate {
                             let jsonEncoder = JSONEncoder()
                             let jsonData = try jsonEncoder.encode(message)
                             let jsonString = String(data: jsonData, encoding: .utf8)
-                            if let eventSinkObj = SwiftFlutterPusherPlugin.eventSink {
+                            if let eventSinkObj = self.streamHandler.eventSink {
                                 eventSinkObj(jsonString)
 
                                 if (self.isLoggingEnabled) {
@@ -249,7 +253,7 @@ public class PusherInstance: PusherDelegate {
             let jsonEncoder = JSONEncoder()
             let jsonData = try jsonEncoder.encode(message)
             let jsonString = String(data: jsonData, encoding: .utf8)
-            if let eventSinkObj = SwiftFlutterPusherPlugin.eventSink {
+            if let eventSinkObj = self.streamHandler.eventSink {
                 eventSinkObj(jsonString)
             }
         } catch {
@@ -263,18 +267,24 @@ public class PusherInstance: PusherDelegate {
         do {
             let json = call.arguments as! String
             let jsonDecoder = JSONDecoder()
-            let bindArgs = try jsonDecoder.decode(BindArgs.self, from: json.data(using: .utf8)!)
+            let triggerArgs = try jsonDecoder.decode(TriggerArgs.self, from: json.data(using: .utf8)!)
 
-            let channel = channels[bindArgs.channelName]
+            let channel = channels[triggerArgs.channelName]
             if let channelObj = channel {
-                let eventName = bindArgs.eventName
+                let eventName = triggerArgs.eventName
+                var data: Any = [:]
+                if let encoded = triggerArgs.data?.data(using: .utf8) {
+                    data = try JSONSerialization.jsonObject(with: encoded, options: [.allowFragments])
+                }
 
-                channelObj.trigger(eventName: eventName, data: [])
+                channelObj.trigger(eventName: eventName, data: data)
             }
+            result(nil)
         } catch {
             if (isLoggingEnabled) {
                 print("Pusher trigger error:" + error.localizedDescription)
             }
+            result(FlutterError(code: "TRIGGER_ERROR", message: error.localizedDescription, details: nil))
         }
     }
 }
@@ -319,12 +329,15 @@ class AuthRequestBuilder: AuthRequestBuilderProtocol {
 }
 
 class StreamHandler: NSObject, FlutterStreamHandler {
+    var eventSink: FlutterEventSink?
+
     public func onListen(withArguments arguments: Any?, eventSink events: @escaping FlutterEventSink) -> FlutterError? {
-        SwiftFlutterPusherPlugin.eventSink = events
+        eventSink = events
         return nil;
     }
 
     public func onCancel(withArguments arguments: Any?) -> FlutterError? {
+        eventSink = nil
         return nil;
     }
 }
@@ -370,3 +383,9 @@ struct BindArgs: Codable {
     var channelName: String
     var eventName: String
 }
+
+struct TriggerArgs: Codable {
+    var channelName: String
+    var eventName: String
+    var data: String?
+}
@@ -4,23 +4,25 @@ import PusherSwift
 
 public class SwiftFlutterPusherPlugin: NSObject, FlutterPlugin {
 
-    public static var eventSink: FlutterEventSink?
-
     public var pusherInstanceMap = [String:PusherInstance]()
 
+    private let messenger: FlutterBinaryMessenger
+
+    init(messenger: FlutterBinaryMessenger) {
+        self.messenger = messenger
+    }
+
     public static func register(with registrar: FlutterPluginRegistrar) {
         let channel = FlutterMethodChannel(name: "com.github.heywhy/pusher", binaryMessenger: registrar.messenger())
-        let instance = SwiftFlutterPusherPlugin()
-        let eventChannel = FlutterEventChannel(name: "com.github.heywhy/pusherStream", binaryMessenger: registrar.messenger())
+        let instance = SwiftFlutterPusherPlugin(messenger: registrar.messenger())
 
         registrar.addMethodCallDelegate(instance, channel: channel)
-        eventChannel.setStreamHandler(StreamHandler())
     }
 
     private func getPusherInstance(instanceId: String?) -> PusherInstance {
         let id = instanceId! as String
         if (instanceId != nil && pusherInstanceMap[id] == nil) {
-            pusherInstanceMap[id] = PusherInstance(instanceId: id)
+            pusherInstanceMap[id] = PusherInstance(instanceId: id, messenger: messenger)
         }
         return pusherInstanceMap[id]!
     }
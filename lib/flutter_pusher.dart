@@ -1,11 +1,16 @@
 import 'dart:async';
 import 'dart:convert';
+import 'dart:typed_data';
 
 import 'package:flutter/services.dart';
+import 'package:flutter/widgets.dart';
 import 'package:json_annotation/json_annotation.dart';
 
 part 'flutter_pusher.g.dart';
 
+/// Verbosity of the native logs, each level includes the ones before it.
+enum LogLevel { off, error, info, debug, trace }
+
 enum PusherConnectionState {
   CONNECTING,
   CONNECTED,
@@ -29,41 +34,118 @@ class Channel {
     var args = jsonEncode(
         BindArgs(instanceId: pusher._instanceId, channelName: this.name)
             .toJson());
-    await _channel.invokeMethod('subscribe', args);
+    try {
+      await _channel.invokeMethod('subscribe', args);
+    } on PlatformException catch (e) {
+      // e.g. another instance of the shared connection owns the channel
+      if (pusher._onError != null) {
+        pusher._onError(ConnectionError(
+            message: e.message, code: e.code, exception: e.details?.toString()));
+      }
+    }
   }
 
   /// Bind to listen for events sent on the given channel
-  Future bind(String eventName, Function onEvent) async {
-    await this.pusher._bind(name, eventName, onEvent: onEvent);
+  ///
+  /// When a [filter] is given, events whose data does not match it are
+  /// dropped before they reach Dart. With [conflate] set, only the latest of
+  /// the events queued while Dart is busy is delivered, which suits events
+  /// carrying a full state such as prices (Android only).
+  ///
+  /// With [delta], the event is a snapshot or a patch of a document kept
+  /// natively for the channel, see [DeltaOptions] (Android only).
+  ///
+  /// With [parse], the data is parsed natively, optionally keeping only some
+  /// of its fields, see [ParseOptions] (Android only).
+  ///
+  /// With [guard], duplicated and out of order events are dropped before
+  /// they are encoded, see [GuardOptions] (Android only).
+  Future bind(
+    String eventName,
+    Function onEvent, {
+    EventFilter filter,
+    bool conflate = false,
+    DeltaOptions delta,
+    ParseOptions parse,
+    GuardOptions guard,
+  }) async {
+    await this.pusher._bind(name, eventName,
+        onEvent: onEvent,
+        filter: filter,
+        conflate: conflate,
+        delta: delta,
+        parse: parse,
+        guard: guard);
+  }
+
+  /// The document of a channel bound in delta mode, or its part at the
+  /// dotted [path], `null` until a snapshot arrived (Android only).
+  Future<dynamic> getDocument({String path}) async {
+    return this.pusher._getDocument(name, path);
   }
 
   Future unbind(String eventName) async {
     await this.pusher._unbind(name, eventName);
   }
 
+  /// Changes of the member roster of a presence channel, delivered in batches
+  /// of added, updated and removed members (Android only).
+  Stream<PresenceDiff> get memberChanges =>
+      pusher._presenceDiffs.stream.where((diff) => diff.channel == name);
+
+  /// A page of the members of a presence channel in join order, the roster
+  /// is kept natively so only the requested page is transferred (Android only).
+  Future<PresencePage> getMembers({int offset = 0, int limit = 100}) async {
+    return this.pusher._getPresenceMembers(name, offset, limit);
+  }
+
+  /// The member of a presence channel with the given [userId], `null` when it
+  /// is not in the roster (Android only).
+  Future<PresenceMember> getMember(String userId) async {
+    return this.pusher._getPresenceMember(name, userId);
+  }
+
   /// Trigger [eventName] (will be prefixed with "client-" in case you have not) for [Channel].
   ///
   /// Client events can only be triggered on private and presence channels because they require authentication
   /// You can only trigger a client event once a subscription has been successfully registered with Channels.
-  Future trigger(String eventName) async {
+  ///
+  /// [data] is JSON encoded. Events are queued natively and sent within the
+  /// rate of [ClientEventOptions]; with [latestWins] a queued event of the same
+  /// name is replaced instead of sending both, fit for cursor or typing updates
+  /// (Android only, iOS sends right away).
+  Future trigger(String eventName,
+      {dynamic data, bool latestWins = false}) async {
     if (!eventName.startsWith('client-')) {
       eventName = "client-$eventName";
     }
 
-    await this.pusher._trigger(name, eventName);
+    await this.pusher._trigger(name, eventName, data, latestWins);
   }
 }
 
 class FlutterPusher {
   static const MethodChannel _channel =
       const MethodChannel('com.github.heywhy/pusher');
-  final EventChannel _eventChannel =
-      const EventChannel('com.github.heywhy/pusherStream');
   static num _instances = 0;
 
   num _instanceId;
+  EventChannel _eventChannel;
+  Future _initialized;
+  StreamSubscription _events;
+  bool _isAutoConnect;
+  _LifecycleObserver _lifecycleObserver;
   String _socketId;
   Map<String, Function> _eventCallbacks = Map<String, Function>();
+  final StreamController<PresenceDiff> _presenceDiffs =
+      StreamController<PresenceDiff>.broadcast();
+  final StreamController<Resync> _resyncs =
+      StreamController<Resync>.broadcast();
+  final StreamController<Map<String, dynamic>> _statsUpdates =
+      StreamController<Map<String, dynamic>>.broadcast();
+  final StreamController<EventGap> _gaps =
+      StreamController<EventGap>.broadcast();
+  final Map<String, int> _sequences = Map<String, int>();
   void Function(ConnectionError) _onError;
   void Function(ConnectionStateChange) _onConnectionStateChange;
 
@@ -77,9 +159,11 @@ class FlutterPusher {
   })  : assert(appKey != null),
         assert(options != null) {
     _instanceId = _instances++;
+    _eventChannel = EventChannel('com.github.heywhy/pusherStream/$_instanceId');
     _onError = onError;
     _onConnectionStateChange = onConnectionStateChange;
-    _init(appKey, options, enableLogging: enableLogging);
+    _initialized = _init(appKey, options, enableLogging: enableLogging);
+    _isAutoConnect = options.autoConnect != null;
     if (!lazyConnect) {
       connect(
           onError: onError, onConnectionStateChange: onConnectionStateChange);
@@ -95,17 +179,46 @@ class FlutterPusher {
         ? onConnectionStateChange
         : _onConnectionStateChange;
     _onError = onError != null ? onError : _onError;
+    if (_isAutoConnect && _lifecycleObserver == null) {
+      // the app lifecycle matters while the client should be connected
+      _lifecycleObserver = _LifecycleObserver(this);
+      WidgetsBinding.instance?.addObserver(_lifecycleObserver);
+    }
 
+    await _initialized;
     await _channel.invokeMethod(
         'connect', jsonEncode({'instanceId': _instanceId}));
   }
 
   /// Disconnect the client from pusher
   Future disconnect() async {
+    _removeLifecycleObserver();
     await _channel.invokeMethod(
         'disconnect', jsonEncode({'instanceId': _instanceId}));
   }
 
+  /// Disconnect the client and release its listeners and streams, the client
+  /// cannot be used afterwards.
+  Future dispose() async {
+    await disconnect();
+    await _initialized;
+    await _events?.cancel();
+    _events = null;
+    await Future.wait([
+      _presenceDiffs.close(),
+      _resyncs.close(),
+      _statsUpdates.close(),
+      _gaps.close(),
+    ]);
+  }
+
+  void _removeLifecycleObserver() {
+    if (_lifecycleObserver != null) {
+      WidgetsBinding.instance?.removeObserver(_lifecycleObserver);
+      _lifecycleObserver = null;
+    }
+  }
+
   /// Subscribe to a channel
   /// Use the returned [Channel] to bind events
   Channel subscribe(String channelName) {
@@ -118,13 +231,84 @@ class FlutterPusher {
         jsonEncode({'channelName': channelName, 'instanceId': _instanceId}));
   }
 
+  /// Subscribe to all channels of [bindings] and bind their events in a single
+  /// platform call, [bindings] maps channel names to event names and handlers.
+  ///
+  /// Returns the status of every channel, `{status, events: {eventName: status}}`
+  /// where the status is `ok` or the error that occurred (Android only).
+  Future<Map<String, dynamic>> subscribeAll(
+      Map<String, Map<String, Function>> bindings) async {
+    return _bulk('subscribeAll', bindings);
+  }
+
+  /// Bind the events of several subscribed channels in a single platform call,
+  /// [bindings] maps channel names to event names and handlers.
+  ///
+  /// Returns the status of every channel, `{status, events: {eventName: status}}`
+  /// where the status is `ok` or the error that occurred (Android only).
+  Future<Map<String, dynamic>> bindAll(
+      Map<String, Map<String, Function>> bindings) async {
+    return _bulk('bindAll', bindings);
+  }
+
+  /// Reports every recovery from a connection drop, once all channels are
+  /// subscribed again (Android only).
+  Stream<Resync> get resyncs => _resyncs.stream;
+
+  /// Stats snapshots sent every [PusherOptions.statsInterval] ms, in the shape
+  /// of [getStats] (Android only).
+  Stream<Map<String, dynamic>> get statsUpdates => _statsUpdates.stream;
+
+  /// Events of private and presence channels that never reached Dart, found
+  /// from the sequence numbers of the journaled channels, see
+  /// [PusherOptions.journal] (Android only).
+  Stream<EventGap> get gaps => _gaps.stream;
+
   String getSocketId() {
     return _socketId;
   }
 
-  void _init(String appKey, PusherOptions options, {bool enableLogging}) async {
-    _eventChannel.receiveBroadcastStream().listen(_handleEvent);
+  /// Number of messages delivered to the event stream and the main thread time
+  /// spent handing them over, in nanoseconds (Android only).
+  Future<Map<String, dynamic>> getDispatcherStats() async {
+    final stats = await _channel.invokeMethod(
+        'getDispatcherStats', jsonEncode({'instanceId': _instanceId}));
+    return _toJsonMap(stats);
+  }
 
+  /// Changes the level of the native logs at runtime, `enableLogging` starts
+  /// the instance at [LogLevel.debug]. Event payloads are only logged at
+  /// [LogLevel.trace], truncated (Android only).
+  Future setLogLevel(LogLevel level) async {
+    await _channel.invokeMethod(
+        'setLogLevel',
+        jsonEncode({
+          'instanceId': _instanceId,
+          'level': level.toString().split('.').last,
+        }));
+  }
+
+  /// Counters and latency histograms of the instance: events received,
+  /// delivered, dropped and filtered in total and per channel, bytes in,
+  /// encode time, queue delay until delivery, auth latency, reconnects and the
+  /// time spent in each connection state, along with the dispatcher and buffer
+  /// stats (Android only).
+  Future<Map<String, dynamic>> getStats() async {
+    final stats = await _channel.invokeMethod(
+        'getStats', jsonEncode({'instanceId': _instanceId}));
+    return _toJsonMap(stats);
+  }
+
+  /// Capacity, overflow policy and the number of queued, dropped and conflated
+  /// events of the native event buffer (Android only).
+  Future<Map<String, dynamic>> getBufferStats() async {
+    final stats = await _channel.invokeMethod(
+        'getBufferStats', jsonEncode({'instanceId': _instanceId}));
+    return _toJsonMap(stats);
+  }
+
+  Future _init(String appKey, PusherOptions options,
+      {bool enableLogging}) async {
     final initArgs = jsonEncode(InitArgs(
       _instanceId,
       appKey,
@@ -132,22 +316,38 @@ class FlutterPusher {
       isLoggingEnabled: enableLogging,
     ).toJson());
 
+    // the instance stream is registered natively on the first call
     await _channel.invokeMethod('init', initArgs);
+    _events = _eventChannel.receiveBroadcastStream().listen(_handleEvent);
   }
 
-  void _handleEvent([dynamic arguments]) async {
-    var message = PusherEventStreamMessage.fromJson(jsonDecode(arguments));
-
-    if (message.instanceId != _instanceId.toString()) {
-      return;
+  void _handleEvent([dynamic arguments]) {
+    // batched delivery sends a list of messages per flush
+    if (arguments is List) {
+      arguments.forEach(_handleMessage);
+    } else {
+      _handleMessage(arguments);
     }
+  }
+
+  void _handleMessage(dynamic arguments) async {
+    // Android sends structured maps, iOS still sends JSON encoded strings
+    var message = PusherEventStreamMessage.fromJson(
+        arguments is String ? jsonDecode(arguments) : _toJsonMap(arguments));
 
     if (message.isEvent) {
+      _checkSequence(message.event);
       var callback =
           _eventCallbacks[message.event.channel + message.event.event];
       if (callback != null) {
-        callback(jsonDecode(message.event.data));
+        callback(_decodeData(message.event.data));
       }
+    } else if (message.isStats) {
+      _statsUpdates.add(message.stats);
+    } else if (message.isResynced) {
+      _resyncs.add(message.resynced);
+    } else if (message.isPresenceDiff) {
+      _presenceDiffs.add(message.presenceDiff);
     } else if (message.isConnectionStateChange) {
       _socketId = await _channel.invokeMethod(
           'getSocketId', jsonEncode({'instanceId': _instanceId}));
@@ -165,17 +365,78 @@ class FlutterPusher {
     String channelName,
     String eventName, {
     Function onEvent,
+    EventFilter filter,
+    bool conflate,
+    DeltaOptions delta,
+    ParseOptions parse,
+    GuardOptions guard,
   }) async {
     final bindArgs = jsonEncode(BindArgs(
       instanceId: _instanceId,
       channelName: channelName,
       eventName: eventName,
+      filter: filter,
+      conflate: conflate,
+      delta: delta,
+      parse: parse,
+      guard: guard,
     ).toJson());
 
     _eventCallbacks[channelName + eventName] = onEvent;
     await _channel.invokeMethod('bind', bindArgs);
   }
 
+  Future<Map<String, dynamic>> _bulk(
+      String method, Map<String, Map<String, Function>> bindings) async {
+    final channels = bindings.entries
+        .map((channel) => {
+              'channelName': channel.key,
+              'events': channel.value.keys.toList(),
+            })
+        .toList();
+
+    bindings.forEach((channelName, events) => events.forEach(
+        (eventName, onEvent) =>
+            _eventCallbacks[channelName + eventName] = onEvent));
+
+    final statuses = _toJsonMap(await _channel.invokeMethod(method,
+        jsonEncode({'instanceId': _instanceId, 'channels': channels})));
+
+    // drop the handlers of the events that could not be bound
+    bindings.forEach((channelName, events) => events.keys.forEach((eventName) {
+          final status = statuses[channelName];
+          if (status == null || status['events'][eventName] != 'ok') {
+            _eventCallbacks.remove(channelName + eventName);
+          }
+        }));
+    return statuses;
+  }
+
+  Future<PresencePage> _getPresenceMembers(
+      String channelName, int offset, int limit) async {
+    final page = await _channel.invokeMethod(
+        'getPresenceMembers',
+        jsonEncode({
+          'instanceId': _instanceId,
+          'channelName': channelName,
+          'offset': offset,
+          'limit': limit,
+        }));
+    return PresencePage.fromJson(_toJsonMap(page));
+  }
+
+  Future<PresenceMember> _getPresenceMember(
+      String channelName, String userId) async {
+    final member = await _channel.invokeMethod(
+        'getPresenceMember',
+        jsonEncode({
+          'instanceId': _instanceId,
+          'channelName': channelName,
+          'userId': userId,
+        }));
+    return member != null ? PresenceMember.fromJson(_toJsonMap(member)) : null;
+  }
+
   Future _unbind(String channelName, String eventName) async {
     final bindArgs = jsonEncode(BindArgs(
       instanceId: _instanceId,
@@ -187,17 +448,101 @@ class FlutterPusher {
     await _channel.invokeMethod('unbind', bindArgs);
   }
 
-  Future _trigger(String channelName, String eventName) async {
-    final bindArgs = jsonEncode(BindArgs(
-      instanceId: _instanceId,
-      channelName: channelName,
-      eventName: eventName,
-    ).toJson());
+  Future<dynamic> _getDocument(String channelName, String path) async {
+    final document = await _channel.invokeMethod(
+        'getDocument',
+        jsonEncode({
+          'instanceId': _instanceId,
+          'channelName': channelName,
+          'path': path,
+        }));
+    return document != null ? jsonDecode(document) : null;
+  }
+
+  Future _setLifecycleState(AppLifecycleState state) async {
+    await _initialized;
+    try {
+      await _channel.invokeMethod(
+          'setLifecycleState',
+          jsonEncode({
+            'instanceId': _instanceId,
+            'state': state.toString().split('.').last,
+          }));
+    } on MissingPluginException {
+      // auto connect is not supported on this platform
+    }
+  }
+
+  void _checkSequence(Event event) {
+    final sequence = event.seq;
+    if (sequence == null) {
+      return;
+    }
 
-    await _channel.invokeMethod('trigger', bindArgs);
+    final last = _sequences[event.channel];
+    // numbering restarts from 1 when the instance is initialized again
+    if (last != null && sequence > last + 1) {
+      _gaps.add(EventGap(
+          channel: event.channel, from: last + 1, to: sequence - 1));
+    }
+    _sequences[event.channel] = sequence;
+  }
+
+  Future _trigger(String channelName, String eventName, dynamic data,
+      bool latestWins) async {
+    await _channel.invokeMethod(
+        'trigger',
+        jsonEncode({
+          'instanceId': _instanceId,
+          'channelName': channelName,
+          'eventName': eventName,
+          'data': jsonEncode(data ?? {}),
+          'latestWins': latestWins,
+        }));
   }
 }
 
+/// Forwards the app lifecycle to the native auto connect of [_pusher].
+class _LifecycleObserver with WidgetsBindingObserver {
+  final FlutterPusher _pusher;
+
+  _LifecycleObserver(this._pusher);
+
+  @override
+  void didChangeAppLifecycleState(AppLifecycleState state) {
+    _pusher._setLifecycleState(state);
+  }
+}
+
+/// Large payloads arrive as UTF-8 bytes, decoded straight into JSON values
+/// without building the intermediate string.
+final Converter<List<int>, Object> _utf8JsonDecoder =
+    utf8.decoder.fuse(json.decoder);
+
+/// Data parsed natively arrives as maps and lists and is passed on as it is.
+dynamic _decodeData(dynamic data) {
+  if (data is Uint8List) {
+    return _utf8JsonDecoder.convert(data);
+  }
+  return data is String ? jsonDecode(data) : data;
+}
+
+/// Maps decoded by the standard message codec are `Map<dynamic, dynamic>`,
+/// the generated factories expect `Map<String, dynamic>`.
+Map<String, dynamic> _toJsonMap(Map map) =>
+    map.map((key, value) => MapEntry(key as String, _toJsonValue(value)));
+
+dynamic _toJsonValue(dynamic value) {
+  if (value is Map) {
+    return _toJsonMap(value);
+  }
+  // payload bytes are kept as they are
+  if (value is List && value is! Uint8List) {
+    return value.map(_toJsonValue).toList();
+  }
+  return value;
+}
+
 class PusherClient extends FlutterPusher {
   PusherClient(
     String appKey,
@@ -216,14 +561,27 @@ class PusherClient extends FlutterPusher {
         );
 }
 
-@JsonSerializable()
+@JsonSerializable(includeIfNull: false)
 class BindArgs {
   final int instanceId;
   final String channelName;
   final String eventName;
-
-  BindArgs({this.channelName, this.eventName, this.instanceId})
-      : assert(instanceId != null);
+  final EventFilter filter;
+  final bool conflate;
+  final DeltaOptions delta;
+  final ParseOptions parse;
+  final GuardOptions guard;
+
+  BindArgs({
+    this.channelName,
+    this.eventName,
+    this.instanceId,
+    this.filter,
+    this.conflate,
+    this.delta,
+    this.parse,
+    this.guard,
+  }) : assert(instanceId != null);
 
   factory BindArgs.fromJson(Map<String, dynamic> json) =>
       _$BindArgsFromJson(json);
@@ -231,6 +589,117 @@ class BindArgs {
   Map<String, dynamic> toJson() => _$BindArgsToJson(this);
 }
 
+/// Parses the data of an event natively, so that the callback receives maps
+/// and lists without the data being decoded on the main isolate.
+@JsonSerializable(includeIfNull: false)
+class ParseOptions {
+  /// Dotted paths of the values to keep, everything else is left out.
+  final List<String> fields;
+
+  ParseOptions({this.fields});
+
+  factory ParseOptions.fromJson(Map<String, dynamic> json) =>
+      _$ParseOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$ParseOptionsToJson(this);
+}
+
+/// What happens to an event whose sequence number is ahead of the next one.
+enum SequenceOrdering {
+  /// Delivered right away, only events behind the last one are dropped.
+  drop,
+
+  /// Held back until the missing events arrive or the hold times out.
+  hold,
+}
+
+/// Drops duplicated and out of order events natively.
+///
+/// Events with the same value at the dotted [idField] on the same channel and
+/// event name are delivered once within the window of [DedupOptions]. With
+/// [sequenceField], events whose number is not above the last delivered on
+/// their channel are dropped, and with [SequenceOrdering.hold] events ahead of
+/// a gap wait up to [holdTimeout] ms for it to fill. Holding does not mix
+/// with conflation, which leaves gaps on purpose.
+@JsonSerializable(includeIfNull: false)
+class GuardOptions {
+  final String idField;
+  final String sequenceField;
+  final SequenceOrdering ordering;
+  final int holdTimeout;
+
+  GuardOptions({
+    this.idField,
+    this.sequenceField,
+    this.ordering = SequenceOrdering.drop,
+    this.holdTimeout = 1000,
+  });
+
+  factory GuardOptions.fromJson(Map<String, dynamic> json) =>
+      _$GuardOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$GuardOptionsToJson(this);
+}
+
+/// How a delta event changes the document kept natively for its channel.
+enum DeltaMode {
+  /// The data is the whole document.
+  snapshot,
+
+  /// The data is a JSON Patch (RFC 6902) of the document.
+  jsonPatch,
+
+  /// The data is a JSON Merge Patch (RFC 7396) of the document.
+  mergePatch,
+}
+
+/// What the callback of a delta event receives.
+enum DeltaDelivery {
+  /// The event data as sent.
+  event,
+
+  /// The updated document, or its part at [DeltaOptions.path].
+  document,
+}
+
+/// Binds an event in delta mode: the document of the channel is kept and
+/// patched natively, so large documents are not decoded on every change.
+/// Events of a [mode] other than [DeltaMode.snapshot] are never conflated,
+/// and the buffer must not drop them either.
+@JsonSerializable(includeIfNull: false)
+class DeltaOptions {
+  final DeltaMode mode;
+  final DeltaDelivery deliver;
+
+  /// Dotted path of the part of the document to deliver.
+  final String path;
+
+  DeltaOptions(this.mode, {this.deliver = DeltaDelivery.event, this.path});
+
+  factory DeltaOptions.fromJson(Map<String, dynamic> json) =>
+      _$DeltaOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$DeltaOptionsToJson(this);
+}
+
+/// Predicate on the value at the dotted [path] of the event data, which must
+/// exist, be equal to [equals] or be one of [isIn].
+@JsonSerializable(includeIfNull: false)
+class EventFilter {
+  final String path;
+  final dynamic equals;
+  @JsonKey(name: 'in')
+  final List<dynamic> isIn;
+  final bool exists;
+
+  EventFilter(this.path, {this.equals, this.isIn, this.exists});
+
+  factory EventFilter.fromJson(Map<String, dynamic> json) =>
+      _$EventFilterFromJson(json);
+
+  Map<String, dynamic> toJson() => _$EventFilterToJson(this);
+}
+
 @JsonSerializable()
 class InitArgs {
   final int instanceId;
@@ -255,6 +724,38 @@ class PusherOptions {
   final int port;
   final bool encrypted;
   final int activityTimeout;
+  final BatchingOptions batching;
+  final BufferOptions buffer;
+  final ReconnectOptions reconnect;
+
+  /// Interval in milliseconds of the stats snapshots sent to
+  /// [FlutterPusher.statsUpdates], `0` turns them off (Android only).
+  final int statsInterval;
+
+  /// Event data of at least this many characters is sent to Dart as UTF-8
+  /// bytes, encoded off the main thread, `0` keeps sending strings
+  /// (Android only).
+  final int binaryThreshold;
+
+  /// Pacing of the client events sent with [Channel.trigger] (Android only).
+  final ClientEventOptions clientEvents;
+
+  /// Keeps the events of private and presence channels on disk while the
+  /// event stream has no listener and replays them once it has (Android only).
+  final JournalOptions journal;
+
+  /// Sizes the set of recent event ids used by [GuardOptions.idField]
+  /// (Android only).
+  final DedupOptions dedup;
+
+  /// Shares one socket between the instances created with the same app key
+  /// and connection options, each channel can then be subscribed by one of
+  /// them only (Android only).
+  final bool shareConnection;
+
+  /// Connects on the first subscription and disconnects when idle or in the
+  /// background instead of on [FlutterPusher.connect] (Android only).
+  final AutoConnectOptions autoConnect;
 
   PusherOptions({
     this.auth,
@@ -263,6 +764,16 @@ class PusherOptions {
     this.port = 443,
     this.encrypted = true,
     this.activityTimeout = 30000,
+    this.batching,
+    this.buffer,
+    this.reconnect,
+    this.statsInterval,
+    this.binaryThreshold,
+    this.clientEvents,
+    this.journal,
+    this.dedup,
+    this.shareConnection,
+    this.autoConnect,
   });
 
   factory PusherOptions.fromJson(Map<String, dynamic> json) =>
@@ -271,14 +782,162 @@ class PusherOptions {
   Map<String, dynamic> toJson() => _$PusherOptionsToJson(this);
 }
 
+/// Coalesces events on the native side and delivers them to Dart in batches,
+/// once [maxBatchSize] events are pending or every [flushInterval] ms.
+@JsonSerializable()
+class BatchingOptions {
+  final int maxBatchSize;
+  final int flushInterval;
+
+  BatchingOptions({this.maxBatchSize = 50, this.flushInterval = 16});
+
+  factory BatchingOptions.fromJson(Map<String, dynamic> json) =>
+      _$BatchingOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$BatchingOptionsToJson(this);
+}
+
+/// Reconnects after a connection drop with exponential backoff and jitter,
+/// starting at [initialDelay] ms and growing up to [maxDelay] ms. Gives up
+/// after [maxAttempts] attempts, `0` retries forever.
+@JsonSerializable()
+class ReconnectOptions {
+  final int initialDelay;
+  final int maxDelay;
+  final int maxAttempts;
+
+  ReconnectOptions({
+    this.initialDelay = 1000,
+    this.maxDelay = 30000,
+    this.maxAttempts = 0,
+  });
+
+  factory ReconnectOptions.fromJson(Map<String, dynamic> json) =>
+      _$ReconnectOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$ReconnectOptionsToJson(this);
+}
+
+/// Sends at most [maxRate] client events per second, Pusher disconnects
+/// clients going over its limit of 10. Up to [maxQueued] events wait for
+/// their turn, triggering more fails.
+@JsonSerializable()
+class ClientEventOptions {
+  final int maxRate;
+  final int maxQueued;
+
+  ClientEventOptions({this.maxRate = 10, this.maxQueued = 100});
+
+  factory ClientEventOptions.fromJson(Map<String, dynamic> json) =>
+      _$ClientEventOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$ClientEventOptionsToJson(this);
+}
+
+/// Journal made of memory-mapped segment files of [segmentSize] bytes, the
+/// oldest segment is deleted once they exceed [maxSize] bytes.
+@JsonSerializable()
+class JournalOptions {
+  final int maxSize;
+  final int segmentSize;
+
+  JournalOptions({
+    this.maxSize = 8 * 1024 * 1024,
+    this.segmentSize = 1024 * 1024,
+  });
+
+  factory JournalOptions.fromJson(Map<String, dynamic> json) =>
+      _$JournalOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$JournalOptionsToJson(this);
+}
+
+/// Remembers the ids of the last [maxEvents] events, and of at least the
+/// events of the last [window] ms. Memory is fixed to 32 bytes per event.
+@JsonSerializable()
+class DedupOptions {
+  final int maxEvents;
+  final int window;
+
+  DedupOptions({this.maxEvents = 4096, this.window = 60000});
+
+  factory DedupOptions.fromJson(Map<String, dynamic> json) =>
+      _$DedupOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$DedupOptionsToJson(this);
+}
+
+/// Once [FlutterPusher.connect] was called, the socket is opened while a
+/// channel is subscribed and the app is in the foreground. It is closed
+/// [idleTimeout] ms after the last channel is unsubscribed, and
+/// [backgroundTimeout] ms after the app is paused when
+/// [disconnectInBackground] is set. Channels are subscribed again on resume.
+@JsonSerializable()
+class AutoConnectOptions {
+  final int idleTimeout;
+  final int backgroundTimeout;
+  final bool disconnectInBackground;
+
+  AutoConnectOptions({
+    this.idleTimeout = 30000,
+    this.backgroundTimeout = 0,
+    this.disconnectInBackground = true,
+  });
+
+  factory AutoConnectOptions.fromJson(Map<String, dynamic> json) =>
+      _$AutoConnectOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$AutoConnectOptionsToJson(this);
+}
+
+/// What happens to an event arriving while the native event buffer is full.
+enum OverflowPolicy {
+  /// Drop the oldest queued event.
+  dropOldest,
+
+  /// Drop the incoming event.
+  dropNewest,
+
+  /// Keep only the latest queued event per channel and event name.
+  conflate,
+
+  /// Hold back the Pusher client until there is room, nothing is lost. The
+  /// client does not answer pings meanwhile, a long stall can disconnect it.
+  block,
+}
+
+/// Bounds the number of events queued natively while Dart is busy.
+@JsonSerializable()
+class BufferOptions {
+  final int capacity;
+  final OverflowPolicy overflowPolicy;
+
+  BufferOptions({
+    this.capacity = 4096,
+    this.overflowPolicy = OverflowPolicy.dropOldest,
+  });
+
+  factory BufferOptions.fromJson(Map<String, dynamic> json) =>
+      _$BufferOptionsFromJson(json);
+
+  Map<String, dynamic> toJson() => _$BufferOptionsToJson(this);
+}
+
 @JsonSerializable()
 class PusherAuth {
   final String endpoint;
   final Map<String, String> headers;
 
+  /// Authorize all pending private and presence channels in a single request,
+  /// the endpoint receives a list of `channel_name`s and answers with the auth
+  /// response of each channel under its name. Requires JSON encoded requests
+  /// (Android only).
+  final bool batch;
+
   PusherAuth(
     this.endpoint, {
     this.headers = const {'Content-Type': 'application/x-www-form-urlencoded'},
+    this.batch = false,
   });
 
   factory PusherAuth.fromJson(Map<String, dynamic> json) =>
@@ -293,9 +952,18 @@ class PusherEventStreamMessage {
   final String instanceId;
   final ConnectionStateChange connectionStateChange;
   final ConnectionError connectionError;
+  final PresenceDiff presenceDiff;
+  final Resync resynced;
+  final Map<String, dynamic> stats;
 
   bool get isEvent => event != null;
 
+  bool get isStats => stats != null;
+
+  bool get isResynced => resynced != null;
+
+  bool get isPresenceDiff => presenceDiff != null;
+
   bool get isConnectionStateChange => connectionStateChange != null;
 
   bool get isConnectionError => connectionError != null;
@@ -304,7 +972,10 @@ class PusherEventStreamMessage {
       {this.event,
       this.instanceId,
       this.connectionStateChange,
-      this.connectionError});
+      this.connectionError,
+      this.presenceDiff,
+      this.resynced,
+      this.stats});
 
   factory PusherEventStreamMessage.fromJson(Map<String, dynamic> json) =>
       _$PusherEventStreamMessageFromJson(json);
@@ -316,15 +987,102 @@ class PusherEventStreamMessage {
 class Event {
   final String channel;
   final String event;
-  final String data;
 
-  Event({this.channel, this.event, this.data});
+  /// The JSON encoded data, as a `String` or its UTF-8 bytes as a `Uint8List`,
+  /// or the decoded maps and lists when the binding parses it natively.
+  final dynamic data;
+
+  /// Number of the event in its channel when the channel is journaled.
+  final int seq;
+
+  /// Whether the event was journaled while nobody listened.
+  final bool replayed;
+
+  Event({this.channel, this.event, this.data, this.seq, this.replayed});
 
   factory Event.fromJson(Map<String, dynamic> json) => _$EventFromJson(json);
 
   Map<String, dynamic> toJson() => _$EventToJson(this);
 }
 
+/// Member of a presence channel, [info] is the user info as JSON.
+@JsonSerializable()
+class PresenceMember {
+  final String id;
+  final String info;
+
+  PresenceMember({this.id, this.info});
+
+  factory PresenceMember.fromJson(Map<String, dynamic> json) =>
+      _$PresenceMemberFromJson(json);
+
+  Map<String, dynamic> toJson() => _$PresenceMemberToJson(this);
+}
+
+/// Page of the roster of a presence channel, [count] is the size of the
+/// whole roster.
+@JsonSerializable()
+class PresencePage {
+  final int count;
+  final List<PresenceMember> members;
+
+  PresencePage({this.count, this.members});
+
+  factory PresencePage.fromJson(Map<String, dynamic> json) =>
+      _$PresencePageFromJson(json);
+
+  Map<String, dynamic> toJson() => _$PresencePageToJson(this);
+}
+
+/// Members that joined, changed their info or left a presence channel since
+/// the previous diff.
+@JsonSerializable()
+class PresenceDiff {
+  final String channel;
+  final List<PresenceMember> added;
+  final List<PresenceMember> updated;
+  final List<String> removed;
+
+  PresenceDiff({this.channel, this.added, this.updated, this.removed});
+
+  factory PresenceDiff.fromJson(Map<String, dynamic> json) =>
+      _$PresenceDiffFromJson(json);
+
+  Map<String, dynamic> toJson() => _$PresenceDiffToJson(this);
+}
+
+/// Events [from] to [to] of [channel], both included, were lost before
+/// reaching Dart.
+@JsonSerializable()
+class EventGap {
+  final String channel;
+  final int from;
+  final int to;
+
+  EventGap({this.channel, this.from, this.to});
+
+  factory EventGap.fromJson(Map<String, dynamic> json) =>
+      _$EventGapFromJson(json);
+
+  Map<String, dynamic> toJson() => _$EventGapToJson(this);
+}
+
+/// Reported once all channels are subscribed again after a connection drop,
+/// [downtime] and [resubscribeTime] are in milliseconds.
+@JsonSerializable()
+class Resync {
+  final int channels;
+  final int attempts;
+  final int downtime;
+  final int resubscribeTime;
+
+  Resync({this.channels, this.attempts, this.downtime, this.resubscribeTime});
+
+  factory Resync.fromJson(Map<String, dynamic> json) => _$ResyncFromJson(json);
+
+  Map<String, dynamic> toJson() => _$ResyncToJson(this);
+}
+
 @JsonSerializable()
 class ConnectionStateChange {
   final String currentState;
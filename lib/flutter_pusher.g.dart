@@ -11,14 +11,149 @@ BindArgs _$BindArgsFromJson(Map<String, dynamic> json) {
     channelName: json['channelName'] as String,
     eventName: json['eventName'] as String,
     instanceId: json['instanceId'] as int,
+    filter: json['filter'] == null
+        ? null
+        : EventFilter.fromJson(json['filter'] as Map<String, dynamic>),
+    conflate: json['conflate'] as bool,
+    delta: json['delta'] == null
+        ? null
+        : DeltaOptions.fromJson(json['delta'] as Map<String, dynamic>),
+    parse: json['parse'] == null
+        ? null
+        : ParseOptions.fromJson(json['parse'] as Map<String, dynamic>),
+    guard: json['guard'] == null
+        ? null
+        : GuardOptions.fromJson(json['guard'] as Map<String, dynamic>),
   );
 }
 
-Map<String, dynamic> _$BindArgsToJson(BindArgs instance) => <String, dynamic>{
-      'instanceId': instance.instanceId,
-      'channelName': instance.channelName,
-      'eventName': instance.eventName,
-    };
+Map<String, dynamic> _$BindArgsToJson(BindArgs instance) {
+  final val = <String, dynamic>{};
+
+  void writeNotNull(String key, dynamic value) {
+    if (value != null) {
+      val[key] = value;
+    }
+  }
+
+  writeNotNull('instanceId', instance.instanceId);
+  writeNotNull('channelName', instance.channelName);
+  writeNotNull('eventName', instance.eventName);
+  writeNotNull('filter', instance.filter);
+  writeNotNull('conflate', instance.conflate);
+  writeNotNull('delta', instance.delta);
+  writeNotNull('parse', instance.parse);
+  writeNotNull('guard', instance.guard);
+  return val;
+}
+
+GuardOptions _$GuardOptionsFromJson(Map<String, dynamic> json) {
+  return GuardOptions(
+    idField: json['idField'] as String,
+    sequenceField: json['sequenceField'] as String,
+    ordering: _$enumDecodeNullable(_$SequenceOrderingEnumMap, json['ordering']),
+    holdTimeout: json['holdTimeout'] as int,
+  );
+}
+
+Map<String, dynamic> _$GuardOptionsToJson(GuardOptions instance) {
+  final val = <String, dynamic>{};
+
+  void writeNotNull(String key, dynamic value) {
+    if (value != null) {
+      val[key] = value;
+    }
+  }
+
+  writeNotNull('idField', instance.idField);
+  writeNotNull('sequenceField', instance.sequenceField);
+  writeNotNull('ordering', _$SequenceOrderingEnumMap[instance.ordering]);
+  writeNotNull('holdTimeout', instance.holdTimeout);
+  return val;
+}
+
+const _$SequenceOrderingEnumMap = {
+  SequenceOrdering.drop: 'drop',
+  SequenceOrdering.hold: 'hold',
+};
+
+ParseOptions _$ParseOptionsFromJson(Map<String, dynamic> json) {
+  return ParseOptions(
+    fields: (json['fields'] as List)?.map((e) => e as String)?.toList(),
+  );
+}
+
+Map<String, dynamic> _$ParseOptionsToJson(ParseOptions instance) {
+  final val = <String, dynamic>{};
+
+  void writeNotNull(String key, dynamic value) {
+    if (value != null) {
+      val[key] = value;
+    }
+  }
+
+  writeNotNull('fields', instance.fields);
+  return val;
+}
+
+DeltaOptions _$DeltaOptionsFromJson(Map<String, dynamic> json) {
+  return DeltaOptions(
+    _$enumDecodeNullable(_$DeltaModeEnumMap, json['mode']),
+    deliver: _$enumDecodeNullable(_$DeltaDeliveryEnumMap, json['deliver']),
+    path: json['path'] as String,
+  );
+}
+
+Map<String, dynamic> _$DeltaOptionsToJson(DeltaOptions instance) {
+  final val = <String, dynamic>{};
+
+  void writeNotNull(String key, dynamic value) {
+    if (value != null) {
+      val[key] = value;
+    }
+  }
+
+  writeNotNull('mode', _$DeltaModeEnumMap[instance.mode]);
+  writeNotNull('deliver', _$DeltaDeliveryEnumMap[instance.deliver]);
+  writeNotNull('path', instance.path);
+  return val;
+}
+
+const _$DeltaModeEnumMap = {
+  DeltaMode.snapshot: 'snapshot',
+  DeltaMode.jsonPatch: 'jsonPatch',
+  DeltaMode.mergePatch: 'mergePatch',
+};
+
+const _$DeltaDeliveryEnumMap = {
+  DeltaDelivery.event: 'event',
+  DeltaDelivery.document: 'document',
+};
+
+EventFilter _$EventFilterFromJson(Map<String, dynamic> json) {
+  return EventFilter(
+    json['path'] as String,
+    equals: json['equals'],
+    isIn: json['in'] as List,
+    exists: json['exists'] as bool,
+  );
+}
+
+Map<String, dynamic> _$EventFilterToJson(EventFilter instance) {
+  final val = <String, dynamic>{};
+
+  void writeNotNull(String key, dynamic value) {
+    if (value != null) {
+      val[key] = value;
+    }
+  }
+
+  writeNotNull('path', instance.path);
+  writeNotNull('equals', instance.equals);
+  writeNotNull('in', instance.isIn);
+  writeNotNull('exists', instance.exists);
+  return val;
+}
 
 InitArgs _$InitArgsFromJson(Map<String, dynamic> json) {
   return InitArgs(
@@ -48,6 +183,32 @@ PusherOptions _$PusherOptionsFromJson(Map<String, dynamic> json) {
     port: json['port'] as int,
     encrypted: json['encrypted'] as bool,
     activityTimeout: json['activityTimeout'] as int,
+    batching: json['batching'] == null
+        ? null
+        : BatchingOptions.fromJson(json['batching'] as Map<String, dynamic>),
+    buffer: json['buffer'] == null
+        ? null
+        : BufferOptions.fromJson(json['buffer'] as Map<String, dynamic>),
+    reconnect: json['reconnect'] == null
+        ? null
+        : ReconnectOptions.fromJson(json['reconnect'] as Map<String, dynamic>),
+    statsInterval: json['statsInterval'] as int,
+    binaryThreshold: json['binaryThreshold'] as int,
+    clientEvents: json['clientEvents'] == null
+        ? null
+        : ClientEventOptions.fromJson(
+            json['clientEvents'] as Map<String, dynamic>),
+    journal: json['journal'] == null
+        ? null
+        : JournalOptions.fromJson(json['journal'] as Map<String, dynamic>),
+    dedup: json['dedup'] == null
+        ? null
+        : DedupOptions.fromJson(json['dedup'] as Map<String, dynamic>),
+    shareConnection: json['shareConnection'] as bool,
+    autoConnect: json['autoConnect'] == null
+        ? null
+        : AutoConnectOptions.fromJson(
+            json['autoConnect'] as Map<String, dynamic>),
   );
 }
 
@@ -66,15 +227,161 @@ Map<String, dynamic> _$PusherOptionsToJson(PusherOptions instance) {
   writeNotNull('port', instance.port);
   writeNotNull('encrypted', instance.encrypted);
   writeNotNull('activityTimeout', instance.activityTimeout);
+  writeNotNull('batching', instance.batching);
+  writeNotNull('buffer', instance.buffer);
+  writeNotNull('reconnect', instance.reconnect);
+  writeNotNull('statsInterval', instance.statsInterval);
+  writeNotNull('binaryThreshold', instance.binaryThreshold);
+  writeNotNull('clientEvents', instance.clientEvents);
+  writeNotNull('journal', instance.journal);
+  writeNotNull('dedup', instance.dedup);
+  writeNotNull('shareConnection', instance.shareConnection);
+  writeNotNull('autoConnect', instance.autoConnect);
   return val;
 }
 
+BatchingOptions _$BatchingOptionsFromJson(Map<String, dynamic> json) {
+  return BatchingOptions(
+    maxBatchSize: json['maxBatchSize'] as int,
+    flushInterval: json['flushInterval'] as int,
+  );
+}
+
+Map<String, dynamic> _$BatchingOptionsToJson(BatchingOptions instance) =>
+    <String, dynamic>{
+      'maxBatchSize': instance.maxBatchSize,
+      'flushInterval': instance.flushInterval,
+    };
+
+ReconnectOptions _$ReconnectOptionsFromJson(Map<String, dynamic> json) {
+  return ReconnectOptions(
+    initialDelay: json['initialDelay'] as int,
+    maxDelay: json['maxDelay'] as int,
+    maxAttempts: json['maxAttempts'] as int,
+  );
+}
+
+Map<String, dynamic> _$ReconnectOptionsToJson(ReconnectOptions instance) =>
+    <String, dynamic>{
+      'initialDelay': instance.initialDelay,
+      'maxDelay': instance.maxDelay,
+      'maxAttempts': instance.maxAttempts,
+    };
+
+ClientEventOptions _$ClientEventOptionsFromJson(Map<String, dynamic> json) {
+  return ClientEventOptions(
+    maxRate: json['maxRate'] as int,
+    maxQueued: json['maxQueued'] as int,
+  );
+}
+
+Map<String, dynamic> _$ClientEventOptionsToJson(ClientEventOptions instance) =>
+    <String, dynamic>{
+      'maxRate': instance.maxRate,
+      'maxQueued': instance.maxQueued,
+    };
+
+JournalOptions _$JournalOptionsFromJson(Map<String, dynamic> json) {
+  return JournalOptions(
+    maxSize: json['maxSize'] as int,
+    segmentSize: json['segmentSize'] as int,
+  );
+}
+
+Map<String, dynamic> _$JournalOptionsToJson(JournalOptions instance) =>
+    <String, dynamic>{
+      'maxSize': instance.maxSize,
+      'segmentSize': instance.segmentSize,
+    };
+
+DedupOptions _$DedupOptionsFromJson(Map<String, dynamic> json) {
+  return DedupOptions(
+    maxEvents: json['maxEvents'] as int,
+    window: json['window'] as int,
+  );
+}
+
+Map<String, dynamic> _$DedupOptionsToJson(DedupOptions instance) =>
+    <String, dynamic>{
+      'maxEvents': instance.maxEvents,
+      'window': instance.window,
+    };
+
+AutoConnectOptions _$AutoConnectOptionsFromJson(Map<String, dynamic> json) {
+  return AutoConnectOptions(
+    idleTimeout: json['idleTimeout'] as int,
+    backgroundTimeout: json['backgroundTimeout'] as int,
+    disconnectInBackground: json['disconnectInBackground'] as bool,
+  );
+}
+
+Map<String, dynamic> _$AutoConnectOptionsToJson(AutoConnectOptions instance) =>
+    <String, dynamic>{
+      'idleTimeout': instance.idleTimeout,
+      'backgroundTimeout': instance.backgroundTimeout,
+      'disconnectInBackground': instance.disconnectInBackground,
+    };
+
+BufferOptions _$BufferOptionsFromJson(Map<String, dynamic> json) {
+  return BufferOptions(
+    capacity: json['capacity'] as int,
+    overflowPolicy: _$enumDecodeNullable(
+        _$OverflowPolicyEnumMap, json['overflowPolicy']),
+  );
+}
+
+Map<String, dynamic> _$BufferOptionsToJson(BufferOptions instance) =>
+    <String, dynamic>{
+      'capacity': instance.capacity,
+      'overflowPolicy': _$OverflowPolicyEnumMap[instance.overflowPolicy],
+    };
+
+T _$enumDecode<T>(
+  Map<T, dynamic> enumValues,
+  dynamic source, {
+  T unknownValue,
+}) {
+  if (source == null) {
+    throw ArgumentError('A value must be provided. Supported values: '
+        '${enumValues.values.join(', ')}');
+  }
+
+  final value = enumValues.entries
+      .singleWhere((e) => e.value == source, orElse: () => null)
+      ?.key;
+
+  if (value == null && unknownValue == null) {
+    throw ArgumentError('`$source` is not one of the supported values: '
+        '${enumValues.values.join(', ')}');
+  }
+  return value ?? unknownValue;
+}
+
+T _$enumDecodeNullable<T>(
+  Map<T, dynamic> enumValues,
+  dynamic source, {
+  T unknownValue,
+}) {
+  if (source == null) {
+    return null;
+  }
+  return _$enumDecode<T>(enumValues, source, unknownValue: unknownValue);
+}
+
+const _$OverflowPolicyEnumMap = {
+  OverflowPolicy.dropOldest: 'dropOldest',
+  OverflowPolicy.dropNewest: 'dropNewest',
+  OverflowPolicy.conflate: 'conflate',
+  OverflowPolicy.block: 'block',
+};
+
 PusherAuth _$PusherAuthFromJson(Map<String, dynamic> json) {
   return PusherAuth(
     json['endpoint'] as String,
     headers: (json['headers'] as Map<String, dynamic>)?.map(
       (k, e) => MapEntry(k, e as String),
     ),
+    batch: json['batch'] as bool,
   );
 }
 
@@ -82,6 +389,7 @@ Map<String, dynamic> _$PusherAuthToJson(PusherAuth instance) =>
     <String, dynamic>{
       'endpoint': instance.endpoint,
       'headers': instance.headers,
+      'batch': instance.batch,
     };
 
 PusherEventStreamMessage _$PusherEventStreamMessageFromJson(
@@ -99,6 +407,13 @@ PusherEventStreamMessage _$PusherEventStreamMessageFromJson(
         ? null
         : ConnectionError.fromJson(
             json['connectionError'] as Map<String, dynamic>),
+    presenceDiff: json['presenceDiff'] == null
+        ? null
+        : PresenceDiff.fromJson(json['presenceDiff'] as Map<String, dynamic>),
+    resynced: json['resynced'] == null
+        ? null
+        : Resync.fromJson(json['resynced'] as Map<String, dynamic>),
+    stats: json['stats'] as Map<String, dynamic>,
   );
 }
 
@@ -109,13 +424,18 @@ Map<String, dynamic> _$PusherEventStreamMessageToJson(
       'instanceId': instance.instanceId,
       'connectionStateChange': instance.connectionStateChange,
       'connectionError': instance.connectionError,
+      'presenceDiff': instance.presenceDiff,
+      'resynced': instance.resynced,
+      'stats': instance.stats,
     };
 
 Event _$EventFromJson(Map<String, dynamic> json) {
   return Event(
     channel: json['channel'] as String,
     event: json['event'] as String,
-    data: json['data'] as String,
+    data: json['data'],
+    seq: json['seq'] as int,
+    replayed: json['replayed'] as bool,
   );
 }
 
@@ -123,6 +443,93 @@ Map<String, dynamic> _$EventToJson(Event instance) => <String, dynamic>{
       'channel': instance.channel,
       'event': instance.event,
       'data': instance.data,
+      'seq': instance.seq,
+      'replayed': instance.replayed,
+    };
+
+PresenceMember _$PresenceMemberFromJson(Map<String, dynamic> json) {
+  return PresenceMember(
+    id: json['id'] as String,
+    info: json['info'] as String,
+  );
+}
+
+Map<String, dynamic> _$PresenceMemberToJson(PresenceMember instance) =>
+    <String, dynamic>{
+      'id': instance.id,
+      'info': instance.info,
+    };
+
+PresencePage _$PresencePageFromJson(Map<String, dynamic> json) {
+  return PresencePage(
+    count: json['count'] as int,
+    members: (json['members'] as List)
+        ?.map((e) => e == null
+            ? null
+            : PresenceMember.fromJson(e as Map<String, dynamic>))
+        ?.toList(),
+  );
+}
+
+Map<String, dynamic> _$PresencePageToJson(PresencePage instance) =>
+    <String, dynamic>{
+      'count': instance.count,
+      'members': instance.members,
+    };
+
+PresenceDiff _$PresenceDiffFromJson(Map<String, dynamic> json) {
+  return PresenceDiff(
+    channel: json['channel'] as String,
+    added: (json['added'] as List)
+        ?.map((e) => e == null
+            ? null
+            : PresenceMember.fromJson(e as Map<String, dynamic>))
+        ?.toList(),
+    updated: (json['updated'] as List)
+        ?.map((e) => e == null
+            ? null
+            : PresenceMember.fromJson(e as Map<String, dynamic>))
+        ?.toList(),
+    removed: (json['removed'] as List)?.map((e) => e as String)?.toList(),
+  );
+}
+
+Map<String, dynamic> _$PresenceDiffToJson(PresenceDiff instance) =>
+    <String, dynamic>{
+      'channel': instance.channel,
+      'added': instance.added,
+      'updated': instance.updated,
+      'removed': instance.removed,
+    };
+
+EventGap _$EventGapFromJson(Map<String, dynamic> json) {
+  return EventGap(
+    channel: json['channel'] as String,
+    from: json['from'] as int,
+    to: json['to'] as int,
+  );
+}
+
+Map<String, dynamic> _$EventGapToJson(EventGap instance) => <String, dynamic>{
+      'channel': instance.channel,
+      'from': instance.from,
+      'to': instance.to,
+    };
+
+Resync _$ResyncFromJson(Map<String, dynamic> json) {
+  return Resync(
+    channels: json['channels'] as int,
+    attempts: json['attempts'] as int,
+    downtime: json['downtime'] as int,
+    resubscribeTime: json['resubscribeTime'] as int,
+  );
+}
+
+Map<String, dynamic> _$ResyncToJson(Resync instance) => <String, dynamic>{
+      'channels': instance.channels,
+      'attempts': instance.attempts,
+      'downtime': instance.downtime,
+      'resubscribeTime': instance.resubscribeTime,
     };
 
 ConnectionStateChange _$ConnectionStateChangeFromJson(